@@ -0,0 +1,91 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import rookc.parser.Node;
+
+/**
+ * Class ExpressionBenchmark.
+ * Parses long generated expressions with Parser.parseExpression.
+ * Flat operator chains mix precedence levels, nested inputs wrap
+ * a literal in as many parentheses as operators. Both should take
+ * time linear in their length and neither should overflow the stack.
+ * 
+ * @see Parser.java
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+    private static final String[] OPERATORS = { " + ", " * ", " - ", " << ", " == ", " && ", " / ", " || " };
+
+    /** Number of binary operators in the expression. */
+    @Param({ "1000", "10000", "100000" })
+    public int operators;
+
+    @Param({ "chain", "nested" })
+    public String shape;
+
+    private Source source;
+    private Parser parser;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        if (shape.equals("chain")) {
+            sb.append("x0");
+            for (int i = 1; i <= operators; i++) {
+                sb.append(OPERATORS[i % OPERATORS.length]).append('x').append(i);
+            }
+        } else {
+            for (int i = 0; i < operators; i++) sb.append("(x").append(i).append(" + ");
+            sb.append('1');
+            for (int i = 0; i < operators; i++) sb.append(')');
+        }
+        source = Source.of("expression.rook", sb.toString());
+    }
+
+    /**
+     * The parser consumes its tokens, so every call needs a new one.
+     * The tokens are lexed here, the Parser would lex them lazily
+     * inside the measurement.
+     */
+    @Setup(Level.Invocation)
+    public void lex() {
+        Report report = new Report(source);
+        parser = new Parser(TokenBuffer.of(new Lexer(source, report)), report, 0, false);
+    }
+
+    @Benchmark
+    public Node parse() {
+        return parser.parseExpression();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import rookc.parser.Node;
+
+/**
+ * Class FrontEndBenchmark.
+ * Lexes and parses generated sources, see SourceGenerator. The
+ * lex and parse benchmarks count the tokens and nodes they make,
+ * JMH prints them as tokens/s and nodes/s next to the call rate.
+ * parseLatency samples single parses for the percentiles.
+ * 
+ * Allocation rate: run with -prof gc.
+ * 
+ * @see Lexer.java
+ * @see Parser.java
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontEndBenchmark {
+    @Param({ "functions", "nesting", "expressions" })
+    public String shape;
+
+    /** Functions, nesting depth or expressions, see SourceGenerator. */
+    @Param({ "1000" })
+    public int size;
+
+    private Source source;
+    private TokenBuffer tokens;
+    private int nodeCount;
+
+    /**
+     * Tokens and nodes made in the current iteration, reported
+     * as rates.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long tokens;
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        source = Source.of(shape + ".rook", SourceGenerator.generate(shape, size, SourceGenerator.SEED));
+        Report report = new Report(source);
+        tokens = TokenBuffer.of(new Lexer(source, report));
+        Parser parser = new Parser(tokens, report, 0, false);
+        parser.parse();
+        if (report.getErrorCount() > 0) {
+            throw new IllegalStateException("Generated source does not parse: " + shape);
+        }
+        nodeCount = count(parser.getRootNode());
+    }
+
+    private static int count(Node root) {
+        int count = 0;
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            count++;
+            for (Node child : node.getChildren()) {
+                if (child != null) stack.push(child);
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public TokenBuffer lex(Counters counters) {
+        TokenBuffer buffer = TokenBuffer.of(new Lexer(source, new Report(source)));
+        counters.tokens += buffer.size();
+        return buffer;
+    }
+
+    /** Parses the tokens lexed in setup, they are only read. */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public Node parse(Counters counters) {
+        Parser parser = new Parser(tokens, new Report(source), 0, false);
+        parser.parse();
+        counters.nodes += nodeCount;
+        return parser.getRootNode();
+    }
+
+    /** Lexes and parses the source as the compiler does. */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Node parseLatency() {
+        Parser parser = new Parser(source, new Report(source));
+        parser.parse();
+        return parser.getRootNode();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Class KeywordBenchmark.
+ * Compares the perfect hash recognizer in Keywords with the
+ * HashMap lookup the Lexer used before, on a stream of
+ * identifier spans where most spans are not keywords.
+ * 
+ * @see Keywords.java
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordBenchmark {
+    private static final String[] WORDS = {
+        "bool", "break", "char", "class", "continue", "elif", "else", "false",
+        "float", "for", "func", "if", "import", "int", "null", "pub", "return",
+        "string", "super", "switch", "this", "true", "while"
+    };
+
+    /** Percentage of spans that are keywords. */
+    @Param({ "10", "50" })
+    public int keywordPercent;
+
+    private String text;
+    private ByteBuffer src;
+    private int[] starts, lengths;
+    private Map<String, TokenType> map;
+
+    @Setup
+    public void setup() {
+        map = new HashMap<>();
+        for (String word : WORDS) {
+            map.put(word, Keywords.lookup(ByteBuffer.wrap(word.getBytes(StandardCharsets.US_ASCII)), 0, word.length()));
+        }
+
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        int count = 100_000;
+        starts = new int[count];
+        lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            String word;
+            if (random.nextInt(100) < keywordPercent) {
+                word = WORDS[random.nextInt(WORDS.length)];
+            } else {
+                // Identifiers that share a first letter or a length with the keywords.
+                word = WORDS[random.nextInt(WORDS.length)].charAt(0) + "var" + random.nextInt(1000);
+            }
+            starts[i] = sb.length();
+            lengths[i] = word.length();
+            sb.append(word).append(' ');
+        }
+        text = sb.toString();
+        src = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100_000)
+    public int perfectHash() {
+        int keywords = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (Keywords.lookup(src, starts[i], lengths[i]) != TokenType.IDENTIFIER) keywords++;
+        }
+        return keywords;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100_000)
+    public int hashMap() {
+        int keywords = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (map.get(text.substring(starts[i], starts[i] + lengths[i])) != null) keywords++;
+        }
+        return keywords;
+    }
+}
\ No newline at end of file
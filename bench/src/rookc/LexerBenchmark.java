@@ -0,0 +1,85 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Class LexerBenchmark.
+ * Lexes generated sources with the word at a time skipping of
+ * Lexer on and off, see Swar. The bytes counter is reported as
+ * bytes/s next to the call rate.
+ * 
+ * @see Lexer.java
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({ "functions", "comments", "expressions" })
+    public String shape;
+
+    /** Functions or expressions, see SourceGenerator. */
+    @Param({ "1000" })
+    public int size;
+
+    /** Lexer.bulk, false runs the DFA one byte at a time. */
+    @Param({ "true", "false" })
+    public boolean bulk;
+
+    private Source source;
+
+    /**
+     * Bytes lexed in the current iteration, reported as a rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        source = Source.of(shape + ".rook", SourceGenerator.generate(shape, size, SourceGenerator.SEED));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public TokenBuffer lex(Counters counters) {
+        Lexer lexer = new Lexer(source, new Report(source));
+        lexer.bulk = bulk;
+        TokenBuffer buffer = TokenBuffer.of(lexer);
+        counters.bytes += source.length();
+        return buffer;
+    }
+}
\ No newline at end of file
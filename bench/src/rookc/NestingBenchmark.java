@@ -0,0 +1,67 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import rookc.parser.Node;
+
+/**
+ * Class NestingBenchmark.
+ * Parses if statements nested depth levels deep, every level with
+ * an elif and an else, see SourceGenerator. Parser.parseIf keeps the
+ * open branches on its own stack, so the time should be linear in
+ * the depth and no depth should overflow the Java stack.
+ * 
+ * @see Parser.java
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestingBenchmark {
+    @Param({ "1000", "10000", "100000" })
+    public int depth;
+
+    private Source source;
+    private TokenBuffer tokens;
+
+    @Setup
+    public void setup() {
+        source = Source.of("nesting.rook", SourceGenerator.generate("nesting", depth, SourceGenerator.SEED));
+        tokens = TokenBuffer.of(new Lexer(source, new Report(source)));
+    }
+
+    /** Parses the tokens lexed in setup, they are only read. */
+    @Benchmark
+    public Node parse() {
+        Parser parser = new Parser(tokens, new Report(source), 0, false);
+        parser.parse();
+        return parser.getRootNode();
+    }
+}
\ No newline at end of file
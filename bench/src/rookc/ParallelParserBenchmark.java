@@ -0,0 +1,94 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import rookc.parser.AstArena;
+
+/**
+ * Class ParallelParserBenchmark.
+ * Lexes and parses one large generated source with Parser and with
+ * ParallelParser on pools of different sizes. The speedup is the
+ * time of sequential over the time of parallel at the same size.
+ * The chunks benchmark runs ParallelParser on a pool of one thread,
+ * which prices the pre-scan and the joins.
+ * 
+ * @see ParallelParser.java
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelParserBenchmark {
+    /** Number of functions, 40000 make about 34 MB. */
+    @Param({ "40000" })
+    public int size;
+
+    @Param({ "2", "4", "8" })
+    public int threads;
+
+    private Source source;
+    private ForkJoinPool pool, single;
+
+    @Setup
+    public void setup() {
+        source = Source.of("functions.rook", SourceGenerator.generate("functions", size, SourceGenerator.SEED));
+        pool = new ForkJoinPool(threads);
+        single = new ForkJoinPool(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+        single.shutdown();
+    }
+
+    @Benchmark
+    public AstArena sequential() {
+        AstArena tree = new AstArena(Math.max(256, source.length() / 8));
+        new Parser(source, new Report(source)).parseInto(tree);
+        return tree;
+    }
+
+    @Benchmark
+    public AstArena parallel() {
+        return parse(pool);
+    }
+
+    @Benchmark
+    public AstArena chunks() {
+        return parse(single);
+    }
+
+    private AstArena parse(ForkJoinPool on) {
+        // As many chunks as ParallelParser.chunks picks for the pool.
+        return on.submit(() -> new ParallelParser(source, new Report(source), threads * 4).getTree()).join();
+    }
+}
\ No newline at end of file
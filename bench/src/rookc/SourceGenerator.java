@@ -0,0 +1,246 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Class SourceGenerator.
+ * Writes synthetic Rook sources for the benchmarks. The output
+ * depends only on the shape, the size and the seed, so every run
+ * and every machine measures the same input.
+ * 
+ * Shapes:
+ * functions   size functions with small parameter lists, if/elif/else
+ *             bodies up to three levels deep and short conditions.
+ * nesting     one function holding a chain of if statements nested
+ *             size levels deep, every level with an elif and an else.
+ * expressions size if statements whose conditions have 100 binary
+ *             operators each, mixing precedence levels, prefix
+ *             operators and parentheses.
+ * comments    the functions shape with a block of comment lines
+ *             before every function and a comment line before
+ *             every if, about half of the bytes are comments.
+ * 
+ * The elif and else branches of an if are written inside its braces,
+ * the form Parser.parseIf accepts.
+ * 
+ * Run with: java rookc.SourceGenerator shape size [seed] [file]
+ * 
+ * @see Parser.java
+ */
+final class SourceGenerator {
+    static final long SEED = 42;
+
+    private static final String[] BINARY = {
+        "+", "-", "*", "/", "%", "<<", ">>", "&", "|", "^",
+        "<", "<=", ">", ">=", "==", "!=", "&&", "||"
+    };
+    private static final String[] UNARY = { "-", "!", "~" };
+    private static final String[] RETURN_TYPES = { "int", "float", "bool", "char", "string", "Point" };
+    private static final String[] WORDS = {
+        "the", "value", "of", "returns", "is", "checked", "before", "each", "branch", "when",
+        "operand", "result", "and", "not", "overflow", "index", "bound", "first", "last", "caller"
+    };
+    private static final int EXPRESSION_OPERATORS = 100;
+    /** Indentation stops growing here so deep inputs stay linear in size. */
+    private static final int MAX_INDENT = 8;
+
+    private final Random random;
+    private final StringBuilder sb = new StringBuilder();
+    private int params;
+    private boolean comments;
+
+    private SourceGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * method generate.
+     * Generates a source of the given shape.
+     * 
+     * @param shape functions, nesting, expressions or comments.
+     * @param size Number of functions, nesting depth or number of expressions.
+     * @param seed Seed of the generator.
+     * @return String
+     */
+    static String generate(String shape, int size, long seed) {
+        SourceGenerator generator = new SourceGenerator(seed);
+        switch (shape) {
+            case "functions" -> generator.functions(size);
+            case "nesting" -> generator.nesting(size);
+            case "expressions" -> generator.expressions(size);
+            case "comments" -> {
+                generator.comments = true;
+                generator.functions(size);
+            }
+            default -> throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        return generator.sb.toString();
+    }
+
+    private void functions(int count) {
+        for (int i = 0; i < count; i++) {
+            open(i, 1 + random.nextInt(4));
+            int statements = random.nextInt(4);
+            for (int j = 0; j < statements; j++) {
+                ifChain(1, 1 + random.nextInt(3), 1 + random.nextInt(6));
+            }
+            sb.append("}\n\n");
+        }
+    }
+
+    private void nesting(int depth) {
+        open(0, 2);
+        // Opened iteratively, a recursive generator would overflow the stack first.
+        for (int level = 1; level <= depth; level++) {
+            indent(level).append("if (");
+            expression(2);
+            sb.append(") {\n");
+        }
+        for (int level = depth; level >= 1; level--) {
+            indent(level).append("elif (");
+            expression(2);
+            sb.append(") {\n");
+            indent(level).append("}\n");
+            indent(level).append("else {\n");
+            indent(level).append("}\n");
+            indent(level).append("}\n");
+        }
+        sb.append("}\n");
+    }
+
+    private void expressions(int count) {
+        for (int i = 0; i < count; i += 16) {
+            open(i / 16, 4);
+            for (int j = i; j < Math.min(count, i + 16); j++) {
+                indent(1).append("if (");
+                expression(EXPRESSION_OPERATORS);
+                sb.append(") {\n");
+                indent(1).append("}\n");
+            }
+            sb.append("}\n\n");
+        }
+    }
+
+    private void open(int index, int params) {
+        this.params = params;
+        if (comments) {
+            for (int i = 2 + random.nextInt(4); i > 0; i--) comment(0);
+        }
+        sb.append("func f").append(index).append('(');
+        for (int i = 0; i < params; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('a').append(i);
+        }
+        sb.append("): ").append(RETURN_TYPES[random.nextInt(RETURN_TYPES.length)]).append(" {\n");
+    }
+
+    /**
+     * Writes an if statement with levels - 1 more levels of if
+     * statements in every branch.
+     */
+    private void ifChain(int level, int levels, int operators) {
+        if (comments) comment(level);
+        indent(level).append("if (");
+        expression(operators);
+        sb.append(") {\n");
+        if (levels > 1) ifChain(level + 1, levels - 1, operators);
+        int elifs = random.nextInt(3);
+        for (int i = 0; i < elifs; i++) {
+            indent(level).append("elif (");
+            expression(operators);
+            sb.append(") {\n");
+            if (levels > 1) ifChain(level + 1, levels - 1, operators);
+            indent(level).append("}\n");
+        }
+        if (random.nextBoolean()) {
+            indent(level).append("else {\n");
+            if (levels > 1) ifChain(level + 1, levels - 1, operators);
+            indent(level).append("}\n");
+        }
+        indent(level).append("}\n");
+    }
+
+    /**
+     * Writes an expression with the given number of binary operators.
+     * Operands are parenthesized at random, so nesting stays shallow.
+     */
+    private void expression(int operators) {
+        int open = 0;
+        for (int i = 0; i <= operators; i++) {
+            if (i > 0) sb.append(' ').append(BINARY[random.nextInt(BINARY.length)]).append(' ');
+            if (i < operators && random.nextInt(8) == 0) {
+                sb.append('(');
+                open++;
+            }
+            if (random.nextInt(10) == 0) sb.append(UNARY[random.nextInt(UNARY.length)]);
+            operand();
+            if (open > 0 && random.nextInt(4) == 0) {
+                sb.append(')');
+                open--;
+            }
+        }
+        for (; open > 0; open--) sb.append(')');
+    }
+
+    private void operand() {
+        switch (random.nextInt(8)) {
+            case 0, 1, 2 -> sb.append('a').append(random.nextInt(params));
+            case 3, 4 -> sb.append(random.nextInt(1000));
+            case 5 -> sb.append(random.nextInt(100)).append('.').append(random.nextInt(100));
+            case 6 -> sb.append(random.nextBoolean() ? "true" : "false");
+            default -> sb.append("v").append(random.nextInt(16));
+        }
+    }
+
+    private void comment(int level) {
+        indent(level).append("//");
+        for (int i = 4 + random.nextInt(8); i > 0; i--) sb.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        sb.append('\n');
+    }
+
+    private StringBuilder indent(int level) {
+        for (int i = Math.min(level, MAX_INDENT); i > 0; i--) sb.append("    ");
+        return sb;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java rookc.SourceGenerator shape size [seed] [file]");
+            System.exit(1);
+        }
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : SEED;
+        String text = generate(args[0], Integer.parseInt(args[1]), seed);
+        if (args.length > 3) {
+            Files.writeString(Path.of(args[3]), text, StandardCharsets.UTF_8);
+        } else {
+            System.out.print(text);
+        }
+    }
+}
\ No newline at end of file
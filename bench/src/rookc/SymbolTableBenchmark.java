@@ -0,0 +1,106 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import rookc.parser.*;
+
+/**
+ * Class SymbolTableBenchmark.
+ * Replays the scopes of a generated source against a SymbolTable:
+ * a function opens a scope and declares its parameters, every if,
+ * elif and else body opens a nested scope, and every identifier in
+ * a condition is looked up and declared in the innermost scope when
+ * missing. The replay is recorded once in setup, so only the table
+ * is measured.
+ * 
+ * @see SymbolTable.java
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymbolTableBenchmark {
+    private static final int ENTER = -1, EXIT = -2;
+
+    @Param({ "functions", "nesting" })
+    public String shape;
+
+    @Param({ "1000" })
+    public int size;
+
+    /** Interner ids to look up, or ENTER and EXIT. */
+    private int[] events;
+
+    @Setup
+    public void setup() {
+        Source source = Source.of(shape + ".rook", SourceGenerator.generate(shape, size, SourceGenerator.SEED));
+        Parser parser = new Parser(source, new Report(source));
+        parser.parse();
+
+        ArrayList<Integer> list = new ArrayList<>();
+        record(parser.getRootNode(), list);
+        events = new int[list.size()];
+        for (int i = 0; i < events.length; i++) events[i] = list.get(i);
+    }
+
+    /** Recursion is fine here, the tree was built by a recursive parser. */
+    private static void record(Node node, ArrayList<Integer> list) {
+        if (node == null) return;
+        boolean scope = switch (node.getType()) {
+            case FUNC, IF, ELIF, ELSE -> true;
+            default -> false;
+        };
+        if (scope) list.add(ENTER);
+        if (node.getType() == NodeType.IDENTIFIER || (node.getType() == NodeType.PARAM && node.getToken() >= 0)) {
+            list.add(node.getValueId());
+        }
+        for (Node child : node.getChildren()) record(child, list);
+        if (scope) list.add(EXIT);
+    }
+
+    @Benchmark
+    public int declareAndLookup() {
+        SymbolTable symbols = new SymbolTable();
+        int found = 0;
+        for (int event : events) {
+            if (event == ENTER) {
+                symbols.enterScope();
+            } else if (event == EXIT) {
+                symbols.exitScope();
+            } else if (symbols.doesExist(event)) {
+                found++;
+            } else {
+                symbols.addIdentifier(event, DataType.INT);
+            }
+        }
+        return found;
+    }
+}
\ No newline at end of file
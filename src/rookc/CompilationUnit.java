@@ -0,0 +1,231 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.io.IOException;
+import java.util.List;
+
+import rookc.parser.*;
+
+/**
+ * Class CompilationUnit.
+ * One source file and the state that belongs to it: its
+ * Report, its SymbolTable and its parse tree. Nothing in a
+ * unit is shared with other units, so they can be compiled
+ * on different threads.
+ * 
+ * The tree is kept in an AstArena rather than as Node objects,
+ * a build holds the trees of every unit of a project at once.
+ */
+final class CompilationUnit {
+    private final String path;
+    private final Report report;
+    private final SymbolTable symbols = new SymbolTable();
+    private AstArena tree;
+    /** Tokens the tree refers to, null for a tree from the cache. */
+    private TokenBuffer tokens;
+    /** Cache entry of a tree from the cache, see offset. */
+    private ParseCache.Entry cached;
+
+    private CompilationUnit(String path, Report report) {
+        this.path = path;
+        this.report = report;
+    }
+
+    /**
+     * Loads, lexes and parses a file.
+     * 
+     * @param path Name along with the relative / absolute path of the file.
+     * @return CompilationUnit
+     */
+    static CompilationUnit compile(String path) {
+        return compile(path, null);
+    }
+
+    /**
+     * Loads a file and takes its tree from the cache, lexing and
+     * parsing it only on a miss. Large files are parsed in chunks
+     * on the pool of the calling thread, see ParallelParser.
+     * 
+     * @param path Name along with the relative / absolute path of the file.
+     * @param cache Parse cache, or null.
+     * @return CompilationUnit
+     */
+    static CompilationUnit compile(String path, ParseCache cache) {
+        Source source;
+        try {
+            source = Source.read(path);
+        } catch (IOException e) {
+            CompilationUnit unit = new CompilationUnit(path, new Report(path));
+            unit.report.error("Cannot read file: " + e);
+            return unit;
+        }
+        return compile(source, cache);
+    }
+
+    /**
+     * Takes the tree of a loaded source from the cache, lexing and
+     * parsing it only on a miss.
+     * 
+     * @param source Source of the unit.
+     * @param cache Parse cache, or null.
+     * @return CompilationUnit
+     */
+    static CompilationUnit compile(Source source, ParseCache cache) {
+        CompilationUnit unit = new CompilationUnit(source.path(), new Report(source));
+        String key = null;
+        if (cache != null) {
+            key = ParseCache.key(source);
+            unit.cached = cache.load(key, unit.report);
+            if (unit.cached != null) {
+                unit.tree = unit.cached.getTree();
+                return unit;
+            }
+        }
+
+        try {
+            int chunks = ParallelParser.chunks(source);
+            if (chunks > 1) {
+                ParallelParser parser = new ParallelParser(source, unit.report, chunks);
+                unit.tree = parser.getTree();
+                unit.tokens = parser.getTokens();
+            } else {
+                AstArena tree = new AstArena(Math.max(256, source.length() / 8));
+                Parser parser = new Parser(source, unit.report);
+                parser.parseInto(tree);
+                unit.tokens = parser.getTokens();
+                unit.tree = tree;
+            }
+        } catch (RuntimeException e) {
+            unit.report.error("Internal compiler error: " + e);
+            return unit;
+        }
+
+        if (cache != null) {
+            try {
+                cache.store(key, unit.tree, unit.tokens, unit.report);
+            } catch (IOException e) {
+                unit.report.warning("Cannot write parse cache: " + e);
+            }
+        }
+        return unit;
+    }
+
+    /**
+     * Creates an empty unit for a file whose compilation threw,
+     * with the failure as its only diagnostic.
+     * 
+     * @param path Name along with the relative / absolute path of the file.
+     * @param e What was thrown.
+     * @return CompilationUnit
+     */
+    static CompilationUnit failed(String path, Throwable e) {
+        CompilationUnit unit = new CompilationUnit(path, new Report(path));
+        unit.report.error("Internal compiler error: " + e);
+        return unit;
+    }
+
+    /**
+     * Loads a file and reads only its imports, see ImportScanner.
+     * The tree of the unit holds the IMPORT nodes.
+     * 
+     * @param path Name along with the relative / absolute path of the file.
+     * @return CompilationUnit
+     */
+    static CompilationUnit scanImports(String path) {
+        Source source;
+        try {
+            source = Source.read(path);
+        } catch (IOException e) {
+            CompilationUnit unit = new CompilationUnit(path, new Report(path));
+            unit.report.error("Cannot read file: " + e);
+            return unit;
+        }
+
+        CompilationUnit unit = new CompilationUnit(path, new Report(source));
+        unit.tree = ImportScanner.scan(source, unit.report);
+        return unit;
+    }
+
+    /**
+     * Semantic stage. Enters the top level functions into the
+     * symbol table of the unit. The tables of the imported units
+     * must be complete, they are only read.
+     * 
+     * @param imports Units imported by this one.
+     */
+    void declare(List<CompilationUnit> imports) {
+        if (tree == null) return;
+        for (int node = tree.getFirstChild(tree.getRoot()); node != AstArena.NONE; node = tree.getNextSibling(node)) {
+            int name = tree.getFirstChild(node);
+            if (tree.getType(node) != NodeType.FUNC || name == AstArena.NONE) continue;
+            int id = tree.getValueId(name);
+            if (symbols.isDeclaredInScope(id)) {
+                report.error("Duplicate declaration of " + tree.getValue(name) + ".", offset(tree.getToken(name)));
+                continue;
+            }
+            for (CompilationUnit unit : imports) {
+                if (unit.symbols.doesExist(id)) {
+                    report.warning(tree.getValue(name) + " hides a declaration of " + unit.path + ".", offset(tree.getToken(name)));
+                    break;
+                }
+            }
+            symbols.addIdentifier(id, DataType.FUNCTION);
+        }
+    }
+
+    /**
+     * Returns the byte offset of a token of the tree, the same for
+     * a parsed tree and a tree from the cache.
+     * 
+     * @param token Token index of a node.
+     * @return Offset, or -1 if the node has no token.
+     */
+    private int offset(int token) {
+        if (token < 0) return -1;
+        if (tokens != null) return tokens.start(token);
+        return (cached != null) ? cached.offset(token) : -1;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Report getReport() {
+        return report;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * Returns the parse tree, or null if the file could not be parsed.
+     * 
+     * @return AstArena
+     */
+    public AstArena getTree() {
+        return tree;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.io.IOException;
+
+import rookc.parser.*;
+
+/**
+ * Class ImportScanner.
+ * Reads only the import declarations at the head of a source,
+ * for build tools that need the dependencies of many files but
+ * not their trees. Tokens are pulled from a TokenStream and
+ * scanning stops at the first token that does not continue an
+ * import, so the rest of the file is never lexed.
+ * 
+ *     import pkg.name;
+ * 
+ * Every declaration becomes an IMPORT node with one PKG_NAME
+ * child holding the dotted name, as in the tree of Parser. The
+ * nodes go into an AstArena like a parsed tree.
+ */
+final class ImportScanner {
+    static final String EXPECTED_NAME = "Parse error. Expected package name.";
+    static final String EXPECTED_SEMICOLON = "Parse error. Expected ';'.";
+
+    private ImportScanner() {
+    }
+
+    /**
+     * Scans the imports of a file.
+     * 
+     * @param path Path of the file.
+     * @param report Report of the file, errors are added to it.
+     * @return AstArena whose ROOT has one IMPORT child per declaration.
+     * @throws IOException
+     */
+    static AstArena scan(String path, Report report) throws IOException {
+        return scan(Source.read(path), report);
+    }
+
+    /**
+     * Scans the imports of a source.
+     * 
+     * @param source Source to scan.
+     * @param report Report of the source, errors are added to it.
+     * @return AstArena whose ROOT has one IMPORT child per declaration.
+     */
+    static AstArena scan(Source source, Report report) {
+        Lexer lex = new Lexer(source, report);
+        report.setLineMap(lex.getLineMap());
+        TokenStream tokens = new TokenStream(lex, 1);
+        AstArena tree = new AstArena(16);
+
+        while (tokens.type(0) == TokenType.IMPORT) {
+            int importNode = tree.add(NodeType.IMPORT, tokens.index(), Interner.IMPORT);
+            tree.appendChild(tree.getRoot(), importNode);
+            tokens.advance();
+            if (tokens.type(0) != TokenType.IDENTIFIER) {
+                report.error(EXPECTED_NAME, tokens.start(0));
+                break;
+            }
+
+            int first = tokens.index();
+            PackageName name = new PackageName(source, tokens.start(0), tokens.length(0), tokens.id(0));
+            tokens.advance();
+            while (tokens.type(0) == TokenType.DOT && tokens.type(1) == TokenType.IDENTIFIER) {
+                name.add(tokens.start(0), tokens.start(1), tokens.length(1));
+                tokens.advance();
+                tokens.advance();
+            }
+            tree.appendChild(importNode, tree.add(NodeType.PKG_NAME, first, name.intern()));
+
+            if (tokens.type(0) != TokenType.SEMICOLON) {
+                report.error(EXPECTED_SEMICOLON, tokens.start(0));
+                break;
+            }
+            tokens.advance();
+        }
+        return tree;
+    }
+
+    /**
+     * Class PackageName.
+     * Builds the dotted name of an import from the spans of its
+     * IDENTIFIER and DOT tokens, so nothing between them, white
+     * space or comments, becomes part of the name. A single
+     * identifier keeps the id of its token and a name written
+     * without gaps is interned straight from the source.
+     */
+    static final class PackageName {
+        private final Source source;
+        private final int from;
+        private int to;
+        /** Interner id of the first identifier, kept while it is the whole name. */
+        private int id;
+        /** The name so far, once a gap was found. */
+        private StringBuilder sb;
+
+        /**
+         * @param source Source of the name.
+         * @param start Start of the first identifier.
+         * @param length Length of the first identifier.
+         * @param id Interner id of the first identifier, see TokenBuffer.id.
+         */
+        PackageName(Source source, int start, int length, int id) {
+            this.source = source;
+            this.from = start;
+            this.to = start + length;
+            this.id = id;
+        }
+
+        /**
+         * Appends a dot and the identifier after it.
+         * 
+         * @param dot Start of the DOT token.
+         * @param start Start of the identifier.
+         * @param length Length of the identifier.
+         */
+        void add(int dot, int start, int length) {
+            id = -1;
+            if (sb == null && dot == to && start == to + 1) {
+                to = start + length;
+                return;
+            }
+            if (sb == null) sb = new StringBuilder(source.text(from, to - from));
+            sb.append('.').append(source.text(start, length));
+        }
+
+        /**
+         * Returns the Interner id of the name.
+         * 
+         * @return int
+         */
+        int intern() {
+            if (id >= 0) return id;
+            return (sb == null) ? Interner.intern(source.bytes(), from, to - from) : Interner.intern(sb.toString());
+        }
+    }
+}
\ No newline at end of file
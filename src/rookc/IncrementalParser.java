@@ -0,0 +1,352 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import rookc.parser.*;
+
+/**
+ * Class IncrementalParser.
+ * Keeps the tokens and the tree of one source across text edits,
+ * for editors that parse on every keystroke. An edit lexes again
+ * only from the first token whose scan may have read into it, see
+ * Lexer.LOOKAHEAD, up to the first old token that lines up with
+ * the new stream, and parses again only the top level
+ * declarations around it. Everything else is reused.
+ * 
+ * Lexing and parsing is bounded by the edited declaration, an
+ * edit is still O(file) overall. The bytes, the line starts and
+ * the tokens are flat arrays, so every edit copies the source and
+ * the line map and moves the tokens after it, and the start of
+ * every later declaration is moved as well. At about 12 MB this
+ * is a few milliseconds per edit. Nodes hold token indexes
+ * relative to their declaration, so the trees after the edit are
+ * not touched.
+ * 
+ * Diagnostics are kept per top level declaration, relative to its
+ * first byte, and an edit replaces exactly the ones of the
+ * declarations it parses again. The report of the unit is then
+ * made again from every bucket in the order a full parse reports
+ * them, so it prints the same as a Parser on the edited source.
+ * Unlike a Parser, parsing never stops after MAX_ERRORS errors.
+ * 
+ * @see Parser.java
+ * @see TokenBuffer.java
+ */
+final class IncrementalParser {
+    private final Report report;
+    private Source source;
+    private TokenBuffer tokens;
+    private final Node rootNode = new Node(Interner.ROOT, NodeType.ROOT);
+    /** Index of the first token of every child of rootNode. */
+    private int[] declStarts = new int[16];
+    /** Lexer and parser diagnostics of every child, null if there are none. */
+    private Report[] lexed = new Report[16];
+    private Report[] parsed = new Report[16];
+    private int declCount;
+    /** Index of the first child that is not an import, see Parser.isPastImports. */
+    private int firstOther;
+
+    /**
+     * Public constructor for IncrementalParser class.
+     * Parses the whole source once.
+     * 
+     * @param source Source to parse.
+     * @param report Report of the compilation unit, it is cleared
+     * and holds the diagnostics of the current source from then on.
+     */
+    public IncrementalParser(Source source, Report report) {
+        this.source = source;
+        this.report = report;
+
+        Report lexReport = new Report(source);
+        this.tokens = TokenBuffer.of(new Lexer(source, lexReport));
+        lexReport.remove(TokenBuffer.UNCLOSED_PARENS, source.length());
+        lexReport.remove(TokenBuffer.UNCLOSED_BRACES, source.length());
+
+        Report scratch = new Report(source);
+        Parser parser = new Parser(tokens, scratch, 0, false);
+        parser.setErrorLimit(Integer.MAX_VALUE);
+        ArrayList<Node> children = rootNode.getChildren();
+        while (tokens.type(parser.getPosition()) != TokenType.EOF) {
+            int at = parser.getPosition();
+            grow(declCount + 1);
+            declStarts[declCount] = at;
+            children.add(relative(parser.parseTopLevel(), at));
+            parsed[declCount++] = bucket(scratch, Integer.MAX_VALUE, tokens.start(at));
+        }
+        for (int d = 0; d < declCount; d++) {
+            int to = (d + 1 < declCount) ? tokens.start(declStarts[d + 1]) : Integer.MAX_VALUE;
+            lexed[d] = bucket(lexReport, to, tokens.start(declStarts[d]));
+        }
+        updateFirstOther(0);
+        rebuild();
+    }
+
+    /**
+     * method edit.
+     * Replaces removed bytes at offset by text and brings the
+     * tokens, the tree and the report up to date.
+     * 
+     * @param offset Byte offset of the edit.
+     * @param removed Number of bytes removed.
+     * @param text Text inserted.
+     */
+    public void edit(int offset, int removed, String text) {
+        byte[] inserted = text.getBytes(StandardCharsets.UTF_8);
+        int delta = inserted.length - removed;
+        Source edited = source.edit(offset, removed, inserted);
+        LineMap lines = tokens.lineMap().edit(offset, removed, edited, inserted.length);
+        int lineDelta = lines.getLineCount() - tokens.lineMap().getLineCount();
+
+        // Lex from the end of the last token whose scan stayed clear of the
+        // edit, see Lexer.LOOKAHEAD, until an old token after it starts at
+        // the same place in the same state.
+        int i0 = tokens.find(offset - Lexer.LOOKAHEAD + 1);
+        int restart = (i0 > 0) ? tokens.start(i0 - 1) + tokens.length(i0 - 1) : 0;
+        TokenType last = (i0 > 0) ? tokens.type(i0 - 1) : TokenType.NONE;
+        Lexer lex = new Lexer(edited, new Report(edited));
+        lex.reset(restart, lines.line(restart), last);
+
+        TokenBuffer relexed = new TokenBuffer(edited, lines, 16);
+        int size = tokens.size();
+        int j = i0;
+        TokenType previous = last;
+        while (true) {
+            TokenType type = lex.getNextTokenType();
+            int start = lex.getTokenStart();
+            if (type != TokenType.EOF && start >= offset + inserted.length) {
+                while (j < size - 1 && tokens.start(j) + delta < start) j++;
+                if (j < size - 1 && tokens.start(j) >= offset + removed && tokens.start(j) + delta == start
+                    && tokens.type(j) == type && tokens.length(j) == lex.getTokenLength()
+                    && Lexer.endsOperand((j > 0) ? tokens.type(j - 1) : TokenType.NONE) == Lexer.endsOperand(previous)) {
+                    break;
+                }
+            }
+            relexed.add(lex, type);
+            if (type == TokenType.EOF) {
+                j = size;
+                break;
+            }
+            previous = type;
+        }
+
+        int d0 = 0;
+        while (d0 + 1 < declCount && declStarts[d0 + 1] <= Math.max(i0 - 1, 0)) d0++;
+        int parseStart = (declCount > 0) ? Math.min(declStarts[d0], i0) : 0;
+        int from = Math.min(tokens.start(parseStart), restart);
+        TokenType before = (parseStart > 0) ? tokens.type(parseStart - 1) : TokenType.NONE;
+
+        tokens.splice(edited, lines, i0, relexed, j, delta, lineDelta);
+        int tokenDelta = relexed.size() - (j - i0);
+        int jNew = i0 + relexed.size();
+
+        // Parse from the declaration holding the token before the edit
+        // until the parser lands on an old declaration past the damage
+        // that is parsed the same way, imports included.
+        Report scratch = new Report(edited);
+        Parser parser = new Parser(tokens, scratch, parseStart, firstOther < d0);
+        parser.setErrorLimit(Integer.MAX_VALUE);
+        ArrayList<Node> nodes = new ArrayList<>();
+        int[] starts = new int[8];
+        Report[] reports = new Report[8];
+        int count = 0;
+        int k = d0;
+        boolean reused = false;
+        while (tokens.type(parser.getPosition()) != TokenType.EOF) {
+            int at = parser.getPosition();
+            if (at >= jNew) {
+                while (k < declCount && (declStarts[k] < j || declStarts[k] + tokenDelta < at)) k++;
+                if (k < declCount && declStarts[k] + tokenDelta == at && parser.isPastImports() == (firstOther < k)) {
+                    reused = true;
+                    break;
+                }
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                reports = Arrays.copyOf(reports, count * 2);
+            }
+            starts[count] = at;
+            nodes.add(relative(parser.parseTopLevel(), at));
+            reports[count++] = bucket(scratch, Integer.MAX_VALUE, tokens.start(at));
+        }
+        if (!reused) k = declCount;
+
+        // Lexer diagnostics of the parsed declarations are made again,
+        // the ones of the token at end belong to the reused declaration.
+        int end = reused ? tokens.start(declStarts[k] + tokenDelta) : Integer.MAX_VALUE;
+        Report lexReport = new Report(edited);
+        Lexer diagnostics = new Lexer(edited, lexReport);
+        diagnostics.reset(from, lines.line(from), before);
+        TokenType type;
+        do {
+            type = diagnostics.getNextTokenType();
+        } while (type != TokenType.EOF && diagnostics.getTokenStart() < end);
+        Report[] lexedNew = new Report[count];
+        for (int i = 0; i < count; i++) {
+            int to = (i + 1 < count) ? tokens.start(starts[i + 1]) : end;
+            lexedNew[i] = bucket(lexReport, to, tokens.start(starts[i]));
+        }
+
+        source = edited;
+        replaceDeclarations(d0, k, nodes, starts, lexedNew, reports, count, tokenDelta);
+        rebuild();
+    }
+
+    private void replaceDeclarations(int from, int to, ArrayList<Node> nodes, int[] starts, Report[] lexedNew,
+            Report[] parsedNew, int count, int tokenDelta) {
+        ArrayList<Node> children = rootNode.getChildren();
+        children.subList(from, to).clear();
+        children.addAll(from, nodes);
+
+        int kept = declCount - to;
+        int size = from + count + kept;
+        grow(size);
+        System.arraycopy(declStarts, to, declStarts, from + count, kept);
+        System.arraycopy(lexed, to, lexed, from + count, kept);
+        System.arraycopy(parsed, to, parsed, from + count, kept);
+        System.arraycopy(starts, 0, declStarts, from, count);
+        System.arraycopy(lexedNew, 0, lexed, from, count);
+        System.arraycopy(parsedNew, 0, parsed, from, count);
+        if (size < declCount) {
+            Arrays.fill(lexed, size, declCount, null);
+            Arrays.fill(parsed, size, declCount, null);
+        }
+        for (int i = from + count; i < size; i++) {
+            declStarts[i] += tokenDelta;
+        }
+        declCount = size;
+
+        if (firstOther >= from) updateFirstOther(from);
+    }
+
+    /**
+     * Makes the token indexes of a new declaration relative to its
+     * first token. Declarations after an edit keep their nodes as
+     * they are, only declStarts moves.
+     * 
+     * @param node Top level node of the declaration.
+     * @param start Index of its first token.
+     * @return Node
+     */
+    private static Node relative(Node node, int start) {
+        if (node == null) return null;
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node next = stack.pop();
+            if (next.getToken() >= 0) next.setToken(next.getToken() - start);
+            for (Node child : next.getChildren()) {
+                if (child != null) stack.push(child);
+            }
+        }
+        return node;
+    }
+
+    private void updateFirstOther(int from) {
+        ArrayList<Node> children = rootNode.getChildren();
+        int d = from;
+        while (d < declCount && children.get(d) != null && children.get(d).getType() == NodeType.IMPORT) d++;
+        firstOther = d;
+    }
+
+    /**
+     * Moves the diagnostics of a report before an offset into a
+     * bucket of a declaration.
+     * 
+     * @param report Report to take from.
+     * @param to Offset the declaration ends at.
+     * @param base First byte of the declaration.
+     * @return Report, or null if there are no diagnostics.
+     */
+    private static Report bucket(Report report, int to, int base) {
+        Report taken = report.take(Integer.MIN_VALUE, to);
+        if (taken.isEmpty()) return null;
+        taken.shift(-base);
+        return taken;
+    }
+
+    /**
+     * Makes the report of the unit from the buckets. A full parse
+     * reports lexer diagnostics before the parser reaches them and
+     * the unclosed brackets when the lexer reaches the end, then
+     * the parser diagnostics in the order of the declarations.
+     */
+    private void rebuild() {
+        report.clear();
+        report.setSource(source, tokens.lineMap());
+        for (int d = 0; d < declCount; d++) {
+            if (lexed[d] != null) report.include(lexed[d], tokens.start(declStarts[d]));
+        }
+        tokens.checkBalance(report);
+        for (int d = 0; d < declCount; d++) {
+            if (parsed[d] != null) report.include(parsed[d], tokens.start(declStarts[d]));
+        }
+    }
+
+    private void grow(int size) {
+        if (size <= declStarts.length) return;
+        int capacity = Math.max(size, declStarts.length * 2);
+        declStarts = Arrays.copyOf(declStarts, capacity);
+        lexed = Arrays.copyOf(lexed, capacity);
+        parsed = Arrays.copyOf(parsed, capacity);
+    }
+
+    public Report getReport() {
+        return report;
+    }
+
+    /**
+     * Returns the root of the tree. Token indexes of the nodes under
+     * a child of the root are relative to the first token of that
+     * child, see getDeclarationStart.
+     * 
+     * @return Node
+     */
+    public Node getRootNode() {
+        return rootNode;
+    }
+
+    /**
+     * Returns the index of the first token of a child of the root.
+     * 
+     * @param index Index of the child.
+     * @return int
+     */
+    public int getDeclarationStart(int index) {
+        return declStarts[index];
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    TokenBuffer getTokens() {
+        return tokens;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class Keywords.
+ * Perfect hash recognizer for the Rook keywords. The hash
+ * only looks at the length, the first and the last character
+ * of a span, so a keyword check costs a table probe and one
+ * region compare, without hashing the whole identifier or
+ * creating a String for it. Identifiers are ASCII, so the
+ * bytes are compared directly against the keyword characters.
+ * 
+ * The multipliers were chosen offline so that every keyword
+ * gets its own slot, the static initializer checks this.
+ * 
+ * @see Lexer.java
+ */
+final class Keywords {
+    private static final int SIZE = 64;
+    private static final int MIN_LENGTH = 2, MAX_LENGTH = 8;
+
+    private static final String[] WORDS = new String[SIZE];
+    private static final TokenType[] TYPES = new TokenType[SIZE];
+
+    static {
+        add("bool", TokenType.BOOL);
+        add("break", TokenType.BREAK);
+        add("char", TokenType.CHAR);
+        add("class", TokenType.CLASS);
+        add("continue", TokenType.CONTINUE);
+        add("elif", TokenType.ELIF);
+        add("else", TokenType.ELSE);
+        add("false", TokenType.FALSE);
+        add("float", TokenType.FLOAT);
+        add("for", TokenType.FOR);
+        add("func", TokenType.FUNC);
+        add("if", TokenType.IF);
+        add("import", TokenType.IMPORT);
+        add("int", TokenType.INT);
+        add("null", TokenType.NULL);
+        add("pub", TokenType.PUB);
+        add("return", TokenType.RETURN);
+        add("string", TokenType.STRING);
+        add("super", TokenType.SUPER);
+        add("switch", TokenType.SWITCH);
+        add("this", TokenType.THIS);
+        add("true", TokenType.TRUE);
+        add("while", TokenType.WHILE);
+    }
+
+    private Keywords() {
+    }
+
+    private static int hash(int first, int last, int length) {
+        return (first * 3 + last * 53 + length) & (SIZE - 1);
+    }
+
+    private static void add(String word, TokenType type) {
+        int h = hash(word.charAt(0), word.charAt(word.length() - 1), word.length());
+        if (WORDS[h] != null) {
+            throw new IllegalStateException("Keyword hash collision: " + word + ", " + WORDS[h]);
+        }
+        WORDS[h] = word;
+        TYPES[h] = type;
+    }
+
+    /**
+     * Looks up the identifier at src[start, start + length).
+     * 
+     * @param src Source bytes.
+     * @param start Offset of the first byte.
+     * @param length Length of the identifier.
+     * @return TokenType of the keyword, or TokenType.IDENTIFIER.
+     */
+    static TokenType lookup(ByteBuffer src, int start, int length) {
+        if (length < MIN_LENGTH || length > MAX_LENGTH) return TokenType.IDENTIFIER;
+
+        int h = hash(src.get(start), src.get(start + length - 1), length);
+        String word = WORDS[h];
+        if (word == null || word.length() != length) return TokenType.IDENTIFIER;
+        for (int i = 0; i < length; i++) {
+            if (src.get(start + i) != word.charAt(i)) return TokenType.IDENTIFIER;
+        }
+        return TYPES[h];
+    }
+}
\ No newline at end of file
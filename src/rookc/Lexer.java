@@ -23,49 +23,327 @@ SOFTWARE.
 */
 package rookc;
 
-import java.util.Map;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+
+import rookc.parser.Interner;
 
 /**
+ * Table driven scanner for Rook sources.
+ * The scanner works on the ASCII / UTF-8 bytes of a Source,
+ * all offsets and lengths are byte offsets.
+ * Each call to getNextTokenType runs a DFA over precomputed
+ * character class and transition tables and records the
+ * matched token as a (start, length) span. The text of the
+ * token is only materialized when getTokenValue is called.
+ * 
  * @author SrcyDev
  */
 final class Lexer {
-    String file,cval,val;
+    /** Character classes. */
+    private static final int C_OTHER = 0, C_SPACE = 1, C_LETTER = 2, C_EXP = 3, C_DIGIT = 4,
+        C_DOT = 5, C_QUOTE = 6, C_APOS = 7, C_BACKSLASH = 8, C_NEWLINE = 9,
+        C_LPAREN = 10, C_RPAREN = 11, C_LBRACE = 12, C_RBRACE = 13, C_LBRACKET = 14, C_RBRACKET = 15,
+        C_SEMI = 16, C_COLON = 17, C_COMMA = 18, C_PLUS = 19, C_MINUS = 20, C_STAR = 21,
+        C_SLASH = 22, C_PERCENT = 23, C_LT = 24, C_GT = 25, C_EQ = 26, C_BANG = 27,
+        C_AMP = 28, C_PIPE = 29, C_CARET = 30, C_TILDE = 31;
+    private static final int CLASSES = 32;
+
+    /** DFA states. S_ERROR is the dead state, every other state is live. */
+    private static final int S_ERROR = 0, S_START = 1, S_START_SIGNED = 2, S_SPACE = 3, S_COMMENT = 4,
+        S_IDENT = 5, S_INT = 6, S_INT_DOT = 7, S_FRAC = 8,
+        S_INT_EXP = 9, S_INT_EXP_SIGN = 10, S_INT_EXP_DIGITS = 11,
+        S_FRAC_EXP = 12, S_FRAC_EXP_SIGN = 13, S_FRAC_EXP_DIGITS = 14,
+        S_STRING = 15, S_STRING_ESC = 16, S_STRING_END = 17,
+        S_CHAR = 18, S_CHAR_ESC = 19, S_CHAR_END = 20,
+        S_LPAREN = 21, S_RPAREN = 22, S_LBRACE = 23, S_RBRACE = 24, S_LBRACKET = 25, S_RBRACKET = 26,
+        S_SEMI = 27, S_COLON = 28, S_COMMA = 29, S_DOT = 30,
+        S_PLUS = 31, S_INCREMENT = 32, S_PLUS_ASSIGN = 33,
+        S_MINUS = 34, S_MINUS_SIGNED = 35, S_DECREMENT = 36, S_MINUS_ASSIGN = 37, S_ARROW = 38,
+        S_STAR = 39, S_STAR_ASSIGN = 40, S_SLASH = 41, S_SLASH_ASSIGN = 42,
+        S_PERCENT = 43, S_PERCENT_ASSIGN = 44,
+        S_LT = 45, S_LE = 46, S_SHL = 47, S_SHL_ASSIGN = 48,
+        S_GT = 49, S_GE = 50, S_SHR = 51, S_SHR_ASSIGN = 52, S_USHR = 53, S_USHR_ASSIGN = 54,
+        S_EQ = 55, S_EQ_EQ = 56, S_BANG = 57, S_NOT_EQUAL = 58,
+        S_AMP = 59, S_AND = 60, S_AND_ASSIGN = 61,
+        S_PIPE = 62, S_OR = 63, S_OR_ASSIGN = 64,
+        S_CARET = 65, S_XOR_ASSIGN = 66, S_TILDE = 67;
+    private static final int STATES = 68;
+
+    /**
+     * Bytes past the end of a token the scan of the token may read:
+     * an 'e', its sign and the byte after them after an integer, or
+     * the bytes of a character above 0x7F after an identifier, see
+     * letter. A token depends on nothing further along.
+     */
+    static final int LOOKAHEAD = 4;
+
+    /**
+     * Character class of every ASCII byte. Anything above 0x7F is
+     * C_OTHER, except for the letters of identifiers, see letter.
+     */
+    private static final byte[] CLASS = new byte[128];
+    /** Transition table indexed by state * CLASSES + class. */
+    private static final byte[] NEXT = new byte[STATES * CLASSES];
+    /** Token produced by an accepting state, null for non accepting states. */
+    private static final TokenType[] ACCEPT = new TokenType[STATES];
+    /** Accepting states that are skipped instead of returned (whitespace, comments). */
+    private static final boolean[] TRIVIA = new boolean[STATES];
+    /** States that loop on themselves over long runs, skipped a word at a time when bulk is set. */
+    private static final boolean[] RUN = new boolean[STATES];
+
+    final Source source;
+    final Report report;
     int line = 1, cpos;
+    int start, length, startLine = 1;
+    int id = -1;
+    /** Whether the last string or character literal holds a backslash escape. */
+    boolean escaped;
+    final LineMap lineMap = new LineMap();
     int P,B;
-    Map<String, TokenType> keywords; 
+    /** Skip whitespace, comments, identifiers and digits a word at a time, see Swar. */
+    boolean bulk = true;
+    /** Record line starts in the LineMap, off when another map covers the source. */
+    boolean lineStarts = true;
+    /** Offset the lexer stops at, see setEnd. */
+    private int end;
+    private TokenType last = TokenType.NONE;
+
+    static {
+        for (char c = 'A'; c <= 'Z'; c++) CLASS[c] = C_LETTER;
+        for (char c = 'a'; c <= 'z'; c++) CLASS[c] = C_LETTER;
+        for (char c = '0'; c <= '9'; c++) CLASS[c] = C_DIGIT;
+        CLASS['_'] = C_LETTER;
+        CLASS['e'] = CLASS['E'] = C_EXP;
+        CLASS[' '] = CLASS['\t'] = CLASS['\r'] = C_SPACE;
+        CLASS['\n'] = C_NEWLINE;
+        CLASS['.'] = C_DOT; CLASS['"'] = C_QUOTE; CLASS['\''] = C_APOS; CLASS['\\'] = C_BACKSLASH;
+        CLASS['('] = C_LPAREN; CLASS[')'] = C_RPAREN; CLASS['{'] = C_LBRACE; CLASS['}'] = C_RBRACE;
+        CLASS['['] = C_LBRACKET; CLASS[']'] = C_RBRACKET;
+        CLASS[';'] = C_SEMI; CLASS[':'] = C_COLON; CLASS[','] = C_COMMA;
+        CLASS['+'] = C_PLUS; CLASS['-'] = C_MINUS; CLASS['*'] = C_STAR; CLASS['/'] = C_SLASH;
+        CLASS['%'] = C_PERCENT; CLASS['<'] = C_LT; CLASS['>'] = C_GT; CLASS['='] = C_EQ;
+        CLASS['!'] = C_BANG; CLASS['&'] = C_AMP; CLASS['|'] = C_PIPE; CLASS['^'] = C_CARET;
+        CLASS['~'] = C_TILDE;
+
+        // Both start states share every edge except the one for '-'.
+        for (int s : new int[] { S_START, S_START_SIGNED }) {
+            edge(s, C_SPACE, S_SPACE);
+            edge(s, C_NEWLINE, S_SPACE);
+            edge(s, C_LETTER, S_IDENT);
+            edge(s, C_EXP, S_IDENT);
+            edge(s, C_DIGIT, S_INT);
+            edge(s, C_QUOTE, S_STRING);
+            edge(s, C_APOS, S_CHAR);
+            edge(s, C_LPAREN, S_LPAREN);
+            edge(s, C_RPAREN, S_RPAREN);
+            edge(s, C_LBRACE, S_LBRACE);
+            edge(s, C_RBRACE, S_RBRACE);
+            edge(s, C_LBRACKET, S_LBRACKET);
+            edge(s, C_RBRACKET, S_RBRACKET);
+            edge(s, C_SEMI, S_SEMI);
+            edge(s, C_COLON, S_COLON);
+            edge(s, C_COMMA, S_COMMA);
+            edge(s, C_DOT, S_DOT);
+            edge(s, C_PLUS, S_PLUS);
+            edge(s, C_STAR, S_STAR);
+            edge(s, C_SLASH, S_SLASH);
+            edge(s, C_PERCENT, S_PERCENT);
+            edge(s, C_LT, S_LT);
+            edge(s, C_GT, S_GT);
+            edge(s, C_EQ, S_EQ);
+            edge(s, C_BANG, S_BANG);
+            edge(s, C_AMP, S_AMP);
+            edge(s, C_PIPE, S_PIPE);
+            edge(s, C_CARET, S_CARET);
+            edge(s, C_TILDE, S_TILDE);
+        }
+        edge(S_START, C_MINUS, S_MINUS);
+        edge(S_START_SIGNED, C_MINUS, S_MINUS_SIGNED);
+
+        // Whitespace and line comments.
+        edge(S_SPACE, C_SPACE, S_SPACE);
+        edge(S_SPACE, C_NEWLINE, S_SPACE);
+        trivia(S_SPACE);
+        for (int c = 0; c < CLASSES; c++) {
+            if (c != C_NEWLINE) edge(S_COMMENT, c, S_COMMENT);
+        }
+        trivia(S_COMMENT);
+
+        // Identifiers and keywords.
+        edge(S_IDENT, C_LETTER, S_IDENT);
+        edge(S_IDENT, C_EXP, S_IDENT);
+        edge(S_IDENT, C_DIGIT, S_IDENT);
+        accept(S_IDENT, TokenType.IDENTIFIER);
+
+        // Numbers. A literal is floating only if it has a decimal point.
+        edge(S_INT, C_DIGIT, S_INT);
+        edge(S_INT, C_DOT, S_INT_DOT);
+        edge(S_INT, C_EXP, S_INT_EXP);
+        accept(S_INT, TokenType.INTEGER_LITERAL);
+        edge(S_INT_DOT, C_DIGIT, S_FRAC);
+        edge(S_FRAC, C_DIGIT, S_FRAC);
+        edge(S_FRAC, C_EXP, S_FRAC_EXP);
+        accept(S_FRAC, TokenType.FLOATING_LITERAL);
+        // The runs Swar can classify a word at a time.
+        RUN[S_SPACE] = RUN[S_COMMENT] = RUN[S_IDENT] = RUN[S_INT] = RUN[S_FRAC] = RUN[S_STRING] = true;
+        edge(S_INT_EXP, C_PLUS, S_INT_EXP_SIGN);
+        edge(S_INT_EXP, C_MINUS, S_INT_EXP_SIGN);
+        edge(S_INT_EXP, C_DIGIT, S_INT_EXP_DIGITS);
+        edge(S_INT_EXP_SIGN, C_DIGIT, S_INT_EXP_DIGITS);
+        edge(S_INT_EXP_DIGITS, C_DIGIT, S_INT_EXP_DIGITS);
+        accept(S_INT_EXP_DIGITS, TokenType.INTEGER_LITERAL);
+        edge(S_FRAC_EXP, C_PLUS, S_FRAC_EXP_SIGN);
+        edge(S_FRAC_EXP, C_MINUS, S_FRAC_EXP_SIGN);
+        edge(S_FRAC_EXP, C_DIGIT, S_FRAC_EXP_DIGITS);
+        edge(S_FRAC_EXP_SIGN, C_DIGIT, S_FRAC_EXP_DIGITS);
+        edge(S_FRAC_EXP_DIGITS, C_DIGIT, S_FRAC_EXP_DIGITS);
+        accept(S_FRAC_EXP_DIGITS, TokenType.FLOATING_LITERAL);
+
+        // String and character literals.
+        for (int c = 0; c < CLASSES; c++) {
+            edge(S_STRING, c, S_STRING);
+            edge(S_STRING_ESC, c, S_STRING);
+            edge(S_CHAR, c, S_CHAR);
+            edge(S_CHAR_ESC, c, S_CHAR);
+        }
+        edge(S_STRING, C_BACKSLASH, S_STRING_ESC);
+        edge(S_STRING, C_QUOTE, S_STRING_END);
+        accept(S_STRING_END, TokenType.STRING_LITERAL);
+        edge(S_CHAR, C_BACKSLASH, S_CHAR_ESC);
+        edge(S_CHAR, C_APOS, S_CHAR_END);
+        accept(S_CHAR_END, TokenType.CHARACTER_LITERAL);
+
+        // Punctuation.
+        accept(S_LPAREN, TokenType.LEFT_PAREN);
+        accept(S_RPAREN, TokenType.RIGHT_PAREN);
+        accept(S_LBRACE, TokenType.LEFT_BRACE);
+        accept(S_RBRACE, TokenType.RIGHT_BRACE);
+        accept(S_LBRACKET, TokenType.LEFT_BRACKET);
+        accept(S_RBRACKET, TokenType.RIGHT_BRACKET);
+        accept(S_SEMI, TokenType.SEMICOLON);
+        accept(S_COLON, TokenType.COLON);
+        accept(S_COMMA, TokenType.COMMA);
+        accept(S_DOT, TokenType.DOT);
+
+        // Operators.
+        edge(S_PLUS, C_PLUS, S_INCREMENT);
+        edge(S_PLUS, C_EQ, S_PLUS_ASSIGN);
+        accept(S_PLUS, TokenType.PLUS);
+        accept(S_INCREMENT, TokenType.INCREMENT);
+        accept(S_PLUS_ASSIGN, TokenType.PLUS_ASSIGN);
+        for (int s : new int[] { S_MINUS, S_MINUS_SIGNED }) {
+            edge(s, C_MINUS, S_DECREMENT);
+            edge(s, C_EQ, S_MINUS_ASSIGN);
+            edge(s, C_GT, S_ARROW);
+            accept(s, TokenType.MINUS);
+        }
+        edge(S_MINUS_SIGNED, C_DIGIT, S_INT);
+        accept(S_DECREMENT, TokenType.DECREMENT);
+        accept(S_MINUS_ASSIGN, TokenType.MINUS_ASSIGN);
+        accept(S_ARROW, TokenType.ARROW);
+        edge(S_STAR, C_EQ, S_STAR_ASSIGN);
+        accept(S_STAR, TokenType.ASTERISK);
+        accept(S_STAR_ASSIGN, TokenType.ASTERISK_ASSIGN);
+        edge(S_SLASH, C_EQ, S_SLASH_ASSIGN);
+        edge(S_SLASH, C_SLASH, S_COMMENT);
+        accept(S_SLASH, TokenType.SLASH);
+        accept(S_SLASH_ASSIGN, TokenType.SLASH_ASSIGN);
+        edge(S_PERCENT, C_EQ, S_PERCENT_ASSIGN);
+        accept(S_PERCENT, TokenType.PERCENT);
+        accept(S_PERCENT_ASSIGN, TokenType.PERCENT_ASSIGN);
+        edge(S_LT, C_EQ, S_LE);
+        edge(S_LT, C_LT, S_SHL);
+        edge(S_SHL, C_EQ, S_SHL_ASSIGN);
+        accept(S_LT, TokenType.LESS_THAN);
+        accept(S_LE, TokenType.LESS_THAN_OR_EQUAL);
+        accept(S_SHL, TokenType.LEFT_SHIFT);
+        accept(S_SHL_ASSIGN, TokenType.LEFT_SHIFT_ASSIGN);
+        edge(S_GT, C_EQ, S_GE);
+        edge(S_GT, C_GT, S_SHR);
+        edge(S_SHR, C_EQ, S_SHR_ASSIGN);
+        edge(S_SHR, C_GT, S_USHR);
+        edge(S_USHR, C_EQ, S_USHR_ASSIGN);
+        accept(S_GT, TokenType.GREATER_THAN);
+        accept(S_GE, TokenType.GREATER_THAN_OR_EQUAL);
+        accept(S_SHR, TokenType.RIGHT_SHIFT);
+        accept(S_SHR_ASSIGN, TokenType.RIGHT_SHIFT_ASSIGN);
+        accept(S_USHR, TokenType.UNSIGNED_RIGHT_SHIFT);
+        accept(S_USHR_ASSIGN, TokenType.UNSIGNED_RIGHT_SHIFT_ASSIGN);
+        edge(S_EQ, C_EQ, S_EQ_EQ);
+        accept(S_EQ, TokenType.EQUAL);
+        accept(S_EQ_EQ, TokenType.EQUAL_EQUAL);
+        edge(S_BANG, C_EQ, S_NOT_EQUAL);
+        accept(S_BANG, TokenType.NOT);
+        accept(S_NOT_EQUAL, TokenType.NOT_EQUAL);
+        edge(S_AMP, C_AMP, S_AND);
+        edge(S_AMP, C_EQ, S_AND_ASSIGN);
+        accept(S_AMP, TokenType.BITWISE_AND);
+        accept(S_AND, TokenType.AND);
+        accept(S_AND_ASSIGN, TokenType.AND_ASSIGN);
+        edge(S_PIPE, C_PIPE, S_OR);
+        edge(S_PIPE, C_EQ, S_OR_ASSIGN);
+        accept(S_PIPE, TokenType.BITWISE_OR);
+        accept(S_OR, TokenType.OR);
+        accept(S_OR_ASSIGN, TokenType.OR_ASSIGN);
+        edge(S_CARET, C_EQ, S_XOR_ASSIGN);
+        accept(S_CARET, TokenType.BITWISE_XOR);
+        accept(S_XOR_ASSIGN, TokenType.XOR_ASSIGN);
+        accept(S_TILDE, TokenType.BITWISE_NOT);
+    }
+
+    private static void edge(int from, int cls, int to) {
+        NEXT[from * CLASSES + cls] = (byte) to;
+    }
+
+    private static void accept(int state, TokenType type) {
+        ACCEPT[state] = type;
+    }
+
+    private static void trivia(int state) {
+        ACCEPT[state] = TokenType.NONE;
+        TRIVIA[state] = true;
+    }
+
+    /**
+     * Decodes the UTF-8 character at pos, the slow path for
+     * identifiers that are not ASCII. Letters start an identifier,
+     * letters and digits continue one, as Character.isLetter and
+     * Character.isLetterOrDigit decide.
+     * 
+     * @param src Bytes of the source.
+     * @param pos Offset of a byte above 0x7F.
+     * @param end End of the source.
+     * @param part Whether the character continues an identifier.
+     * @return Number of bytes of the character, or 0 if it is not
+     * a letter or is not well formed.
+     */
+    private static int letter(ByteBuffer src, int pos, int end, boolean part) {
+        int lead = src.get(pos) & 0xFF;
+        int width = (lead >= 0xF0) ? 4 : (lead >= 0xE0) ? 3 : (lead >= 0xC0) ? 2 : 0;
+        if (width == 0 || lead >= 0xF8 || end - pos < width) return 0;
+        int cp = lead & (0x7F >> width);
+        for (int i = 1; i < width; i++) {
+            int b = src.get(pos + i) & 0xFF;
+            if ((b & 0xC0) != 0x80) return 0;
+            cp = cp << 6 | (b & 0x3F);
+        }
+        // Overlong forms and surrogates are not characters.
+        if (cp < ((width == 2) ? 0x80 : (width == 3) ? 0x800 : 0x10000) || cp > Character.MAX_CODE_POINT
+            || cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE) {
+            return 0;
+        }
+        return (part ? Character.isLetterOrDigit(cp) : Character.isLetter(cp)) ? width : 0;
+    }
 
     /**
      * Public constructor for class Lexer.
-     * It takes the contents of a file as
-     * String and then stores it in an instance variable.
+     * It takes the Source to scan and the Report
+     * of the compilation unit it belongs to.
      */
-    public Lexer(String file) {
-        this.file = file;
-        keywords = new HashMap<>();
-
-        keywords.put("bool", TokenType.BOOL);
-        keywords.put("break", TokenType.BREAK);
-        keywords.put("char", TokenType.CHAR);
-        keywords.put("class", TokenType.CLASS);
-        keywords.put("continue", TokenType.CONTINUE);
-        keywords.put("else", TokenType.ELSE);
-        keywords.put("false", TokenType.FALSE);
-        keywords.put("float", TokenType.FLOAT);
-        keywords.put("for", TokenType.FOR);
-        keywords.put("func", TokenType.FUNC);
-        keywords.put("if", TokenType.IF);
-        keywords.put("import", TokenType.IMPORT);
-        keywords.put("int", TokenType.INT);
-        keywords.put("null", TokenType.NULL);
-        keywords.put("pub", TokenType.PUB);
-        keywords.put("return", TokenType.RETURN);
-        keywords.put("string", TokenType.STRING);
-        keywords.put("super", TokenType.SUPER);
-        keywords.put("switch", TokenType.SWITCH);
-        keywords.put("this", TokenType.THIS);
-        keywords.put("true", TokenType.TRUE);
-        keywords.put("while", TokenType.WHILE);
+    public Lexer(Source source, Report report) {
+        this.source = source;
+        this.report = report;
+        this.end = source.length();
     }
 
     /**
@@ -75,340 +353,263 @@ final class Lexer {
      * @return boolean
      */
     private boolean isEof() {
-        return (cpos >= file.length());
+        return (cpos >= end);
     }
 
     /**
-     * Sets the current colummn position after a new line.
+     * Checks if a token ends an operand. A '-' directly followed
+     * by a digit is lexed as the sign of a literal unless it comes
+     * right after one of these.
      * 
-     * @return void
+     * @param type TokenType of the previous token.
+     * @return boolean
      */
-    private void setNewLine() {
-        for (;!isEof();cpos++) {
-            if (file.charAt(cpos) == '\n') break;
-        }
+    static boolean endsOperand(TokenType type) {
+        return switch (type) {
+            case IDENTIFIER, INTEGER_LITERAL, FLOATING_LITERAL, CHARACTER_LITERAL, STRING_LITERAL,
+                TRUE, FALSE, NULL, THIS, RIGHT_PAREN, RIGHT_BRACKET -> true;
+            default -> false;
+        };
     }
 
     /**
-     * Check if a character is a number.
+     * method reset.
+     * Moves the lexer to an offset, used to lex again only part
+     * of a source. The offset must not be inside a token or a
+     * comment. The bracket counts start from zero.
      * 
-     * @param c Character to check for.
-     * @return boolean
+     * @param cpos Offset to continue from.
+     * @param line Line of that offset.
+     * @param last Type of the token before that offset.
      */
-    private boolean isNum(char c) {
-        return (c >= '0' && c <= '9');
+    public void reset(int cpos, int line, TokenType last) {
+        this.cpos = cpos;
+        this.line = line;
+        this.last = last;
+        this.P = 0;
+        this.B = 0;
     }
 
     /**
-     * Checks if a charcter is a valid punctuation.
+     * method setEnd.
+     * Makes the lexer return EOF at an offset before the end of
+     * the source, used to lex a range of it. The offset must lie
+     * between two tokens, so no token is cut short.
      * 
-     * @param c
-     * @return
+     * @param end Offset to stop at.
      */
-    public static boolean isValidPunc(char c) {
-        String punctuations = "!\"%'()*+,-./:;<=>[]{}";
-        return punctuations.indexOf(c) != -1;
+    public void setEnd(int end) {
+        this.end = Math.min(end, source.length());
     }
-    
+
     /**
-     * Check if a character is a letter.
+     * method getCurrentCpos.
+     * Returns the current column position.
      * 
-     * @param c Character to check for.
-     * @return boolean
+     * @return int
      */
-    private boolean isLetter(char c) {
-        return ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z'));
+    public int getCurrentCpos() {
+        return this.cpos;
     }
 
     /**
-     * Check if a character is alphanumeric.
+     * method getCurrentLine.
+     * Returns the current column position.
      * 
-     * @param c Character to check for.
-     * @return boolean
+     * @return int
      */
-    private boolean isAlphaNum(char c) {
-        return (isLetter(c) || isNum(c));
+    public int getCurrentLine() {
+        return this.line;
     }
 
     /**
-     * Check if the literal starting from current column position is valid or not.
-     * If valid, return the type (Integer or Floating), otherwise generate error.
+     * method getTokenStart.
+     * Returns the offset of the first character of the last token.
      * 
-     * @return TokenType
+     * @return int
      */
-    private TokenType number() {
-        int start = cpos,i = 0;
-        boolean isValid = true;
-
-        if (this.file.charAt(cpos) == '-') {
-            if (isEof() || !isNum(this.file.charAt(cpos + 1))) {
-                Report.error("Invalid number format", file, line, cpos);
-                isValid = false;
-            }
-            cpos++;
-            i++;
-        }
-        boolean decimalPointSeen = false;
-        boolean exponentSeen = false;
-        while (cpos < this.file.length() && isNum(this.file.charAt(cpos))) {
-            cpos++;
-            i++;
-        }
-        if (cpos < this.file.length() && this.file.charAt(cpos) == '.' && cpos + 1 < this.file.length() && isNum(this.file.charAt(cpos + 1))) {
-            cpos++;
-            i++;
-            decimalPointSeen = true;
-            while (cpos < this.file.length() && isNum(this.file.charAt(cpos))) {
-                cpos++;
-                i++;
-            }
-        }
-        if (cpos < this.file.length() && (this.file.charAt(cpos) == 'e' || this.file.charAt(cpos) == 'E')) {
-            if (exponentSeen) {
-                Report.error("Multiple 'E'/'e' detected.", file, line, cpos);
-                isValid = false;
-            }
-            cpos++;
-            i++;
-            exponentSeen = true;
-            if (cpos < this.file.length() && (this.file.charAt(cpos) == '+' || this.file.charAt(cpos) == '-')) {
-                cpos++;
-                i++;
-            }
-            if (cpos >= this.file.length() || !isNum(this.file.charAt(cpos))) {
-                Report.error("Invalid number format", file, line, cpos);
-                return TokenType.NONE;
-            }
-            while (cpos < this.file.length() && isNum(this.file.charAt(cpos))) {
-                cpos++;
-                i++;
-            }
-        }
-        if (!isValid) return TokenType.NONE;
-
-        this.val = this.file.substring(start, cpos + i);
-        return decimalPointSeen ? TokenType.FLOATING_LITERAL : TokenType.INTEGER_LITERAL;
+    public int getTokenStart() {
+        return this.start;
     }
 
     /**
-     * Consume the String Literal and store it in val.
+     * method getTokenLength.
+     * Returns the number of characters of the last token.
      * 
-     * @return void
+     * @return int
      */
-    private void string() {
-        boolean closedString = false;
-        
-        for (;!isEof();cpos++) {
-            if (file.charAt(cpos) == '"' && file.charAt(cpos - 1) != '\\') {
-                closedString = true;
-                break;
-            }
-            this.val += file.charAt(cpos);
-        }
-
-        if (!closedString) {
-            Report.error("String literal not closed.", file, line, cpos);
-        }
+    public int getTokenLength() {
+        return this.length;
     }
 
     /**
-     * Checks if the identified literal is a valid identifier or not.
-     * If valid, return TokenType.IDENTIFIER, TokenType.NONE otherwise.
+     * method getTokenLine.
+     * Returns the line on which the last token starts.
      * 
-     * @return TokenType
+     * @return int
      */
-    private TokenType identifier() {
-        boolean isValid = true;
+    public int getTokenLine() {
+        return this.startLine;
+    }
 
-        if (file == null || file.isEmpty() || cpos < 0 || cpos >= file.length()) {
-            isValid = false;
-        }
-        
-        // Check the first character
-        char firstChar = file.charAt(cpos);
-        if (!(firstChar == '_' || Character.isLetter(firstChar))) {
-            isValid = false;
-        }
-        
-        // Check the remaining characters
-        for (int i = cpos + 1; i < file.length(); i++) {
-            char c = file.charAt(i);
-            if (!(c == '_' || Character.isLetterOrDigit(c))) {
-                isValid = false;
-            }
-        }
-        
-       return (isValid) ? TokenType.IDENTIFIER : TokenType.NONE; 
+    /**
+     * method getLineMap.
+     * Returns the start offsets of the lines scanned so far.
+     * 
+     * @return LineMap
+     */
+    public LineMap getLineMap() {
+        return this.lineMap;
     }
 
     /**
-     * method getCurrentCpos.
-     * Returns the current column position.
+     * method getTokenId.
+     * Returns the Interner id of the last token if it is an
+     * identifier or a literal other than a string, -1 otherwise.
      * 
      * @return int
      */
-    public int getCurrentCpos() {
-        return this.cpos;
+    public int getTokenId() {
+        return this.id;
     }
 
     /**
-     * method getCurrentLine.
-     * Returns the current column position.
+     * method hasEscape.
+     * Returns whether the last token is a string or character
+     * literal with a backslash escape, see TokenBuffer.literal.
      * 
-     * @return int
+     * @return boolean
      */
-    public int getCurrentLine() {
-        return this.line;
+    public boolean hasEscape() {
+        return this.escaped;
     }
 
     /**
      * Returns the value of the Token.
+     * The String is created on every call, callers that only
+     * need the position should use getTokenStart and getTokenLength.
      * 
      * @return String
      */
     public String getTokenValue() {
-        return this.cval;
+        return this.source.text(start, length);
     }
 
     /**
      * Method getNextToken.
      * This returns the token type after identifying the type of
-     * the token.
+     * the token. Whitespace and comments are skipped.
      * 
      * @return TokenType
      */
     public TokenType getNextTokenType() {
-        this.cval = "";
-        
-        if (isEof()) {
-            if (P != 0) Report.error("Unclosed parantheses detected.", file, line, cpos);
-            if (B != 0) Report.error("Unclosed braces detected.", file, line, cpos);
-            return TokenType.EOF;
-        }
+        final ByteBuffer src = this.source.bytes();
+        final int end = this.end;
 
-        for (;!isEof();cpos++) {
-            if (!isAlphaNum(file.charAt(cpos)) && !isValidPunc(file.charAt(cpos))) break;
-            this.cval += file.charAt(cpos);
-        }
+        for (;;) {
+            this.start = cpos;
+            this.length = 0;
+            this.startLine = line;
+            this.id = -1;
+            this.escaped = false;
 
-        TokenType type = keywords.get(this.cval);
-            
-        if (type != null) {
-            return type;
-        } else {
-            return switch (this.cval) {
-                case "(" -> {
-                    P++;
-                    yield TokenType.LEFT_PAREN;
-                }
-                case ")" -> {
-                    P--;
-                    yield TokenType.RIGHT_PAREN;
-                }
-                case "{" -> {
-                    B++;
-                    yield TokenType.LEFT_BRACE;
-                }
-                case "}" -> {
-                    B--;
-                    yield TokenType.RIGHT_BRACE;
-                }
-                case "[" -> {
-                    yield TokenType.LEFT_BRACKET;
-                }
-                case "]" -> {
-                    yield TokenType.RIGHT_BRACKET;
-                }
-                case "," -> {
-                    yield TokenType.COMMA;
-                }
-                case "." -> {
-                    yield TokenType.DOT;
-                }
-                case ";" -> {
-                    yield TokenType.SEMICOLON;
+            if (isEof()) {
+                return last = TokenType.EOF;
+            }
+
+            // Run the DFA, remembering the last accepting state for maximal munch.
+            int state = endsOperand(last) ? S_START : S_START_SIGNED;
+            int pos = cpos, lines = line;
+            int accepted = S_ERROR, acceptedPos = cpos, acceptedLine = line;
+            while (pos < end) {
+                int c = src.get(pos) & 0xFF;
+                int cls = (c < 128) ? CLASS[c] : C_OTHER, width = 1;
+                if (c >= 128 && (state == S_IDENT || state == S_START || state == S_START_SIGNED)) {
+                    width = letter(src, pos, end, state == S_IDENT);
+                    if (width > 0) cls = C_LETTER;
+                    else width = 1;
                 }
-                case "->" -> {
-                    yield TokenType.ARROW;
+                int next = NEXT[state * CLASSES + cls];
+                if (next == S_ERROR) break;
+                if (next == S_STRING_ESC || next == S_CHAR_ESC) escaped = true;
+                state = next;
+                pos += width;
+                if (c == '\n') {
+                    lines++;
+                    if (lineStarts) this.lineMap.add(pos);
                 }
-                case "-" -> {
-                    if (!isNum(file.charAt(cpos + 1)) || file.charAt(cpos + 1) == ' ') 
-                        yield TokenType.MINUS;
-                    else {
-                        yield number();
+                if (RUN[state] && bulk && end - pos >= Long.BYTES) {
+                    // Runs that loop on their state are skipped a word at a time.
+                    switch (state) {
+                        case S_SPACE -> {
+                            int run;
+                            do {
+                                long word = Swar.word(src, pos);
+                                run = Swar.run(Swar.whitespace(word));
+                                long newlines = Swar.equal(word, '\n') & ((run < Long.BYTES) ? (1L << (run << 3)) - 1 : -1L);
+                                for (; newlines != 0; newlines &= newlines - 1) {
+                                    lines++;
+                                    if (!lineStarts) continue;
+                                    this.lineMap.add(pos + (Long.numberOfTrailingZeros(newlines) >>> 3) + 1);
+                                }
+                                pos += run;
+                            } while (run == Long.BYTES && end - pos >= Long.BYTES);
+                        }
+                        case S_COMMENT -> pos = Swar.skipLine(src, pos, end);
+                        case S_IDENT -> pos = Swar.skipIdentifier(src, pos, end);
+                        case S_INT, S_FRAC -> pos = Swar.skipDigits(src, pos, end);
+                        case S_STRING -> pos = Swar.skipString(src, pos, end);
+                        default -> { }
                     }
                 }
-                case "+" -> {
-                    yield TokenType.PLUS;
-                }
-                case "*" -> {
-                    yield TokenType.ASTERISK;
-                }
-                case "/" -> {
-                    yield TokenType.SLASH;
-                }
-                case "!" -> {
-                    yield TokenType.NOT;
-                }
-                case "=" -> {
-                    yield  TokenType.EQUAL;
-                }
-                case "<" -> {
-                    yield TokenType.LESS_THAN;
-                }
-                case ">" -> {
-                    yield TokenType.GREATER_THAN;
-                }
-                case "-=" -> {
-                    yield TokenType.MINUS_ASSIGN;
-                }
-                case "+=" -> {
-                    yield TokenType.PLUS_ASSIGN;
-                }
-                case "*=" -> {
-                    yield TokenType.ASTERISK_ASSIGN;
+                if (ACCEPT[state] != null) {
+                    accepted = state;
+                    acceptedPos = pos;
+                    acceptedLine = lines;
                 }
-                case "/=" -> {
-                    yield TokenType.SLASH_ASSIGN;
-                }
-                case "!=" -> {
-                    yield TokenType.NOT_EQUAL;
-                }
-                case "==" -> {
-                    yield  TokenType.EQUAL_EQUAL;
-                }
-                case "<=" -> {
-                    yield TokenType.LESS_THAN_OR_EQUAL;
-                }
-                case ">=" -> {
-                    yield TokenType.GREATER_THAN_OR_EQUAL;
-                }
-                case "//" -> {
-                    setNewLine();
-                    yield TokenType.NONE;
-                }
-                case " ", "\r", "\t" -> {
-                    yield TokenType.NONE;
-                }
-                case "\n" -> {
-                    line++;
-                    yield TokenType.NONE;
-                }
-                case "\"" -> {
-                    string();
-                    yield TokenType.STRING_LITERAL;
+            }
+
+            if (accepted == S_ERROR) {
+                if (state == S_STRING || state == S_STRING_ESC || state == S_CHAR || state == S_CHAR_ESC) {
+                    // Unterminated literal, it runs until the end of the file.
+                    report.error("String literal not closed.", cpos);
+                    this.length = pos - cpos;
+                    this.cpos = pos;
+                    this.line = lines;
+                    // The rest of the file is not a value, it is not interned.
+                    if (state == S_STRING || state == S_STRING_ESC) return last = TokenType.STRING_LITERAL;
+                    return last = TokenType.CHARACTER_LITERAL;
                 }
-                default -> {
-                    if (isNum(cval.charAt(0))) {
-                        yield number();
-                    } else if (isAlphaNum(cval.charAt(0))) {
-                        yield identifier();
-                    } else {
-                        Report.error("Unexpected character", file, line, cpos);
-                        yield TokenType.NONE;
-                    }
+                report.error("Unexpected character", cpos);
+                // Skip the continuation bytes of a multi-byte character as well.
+                this.cpos++;
+                while (cpos < end && (src.get(cpos) & 0xC0) == 0x80) cpos++;
+                this.length = cpos - start;
+                return last = TokenType.NONE;
+            }
+
+            this.length = acceptedPos - cpos;
+            this.cpos = acceptedPos;
+            this.line = acceptedLine;
+            if (lineStarts) this.lineMap.truncate(acceptedLine);
+            if (TRIVIA[accepted]) continue;
+
+            TokenType type = ACCEPT[accepted];
+            switch (type) {
+                case IDENTIFIER -> {
+                    type = Keywords.lookup(src, start, length);
+                    if (type == TokenType.IDENTIFIER) id = Interner.intern(src, start, length);
                 }
-            };  
+                // String literals can be large, they are never interned, see TokenBuffer.literal.
+                case INTEGER_LITERAL, FLOATING_LITERAL, CHARACTER_LITERAL ->
+                    id = Interner.intern(src, start, length);
+                case LEFT_PAREN -> P++;
+                case RIGHT_PAREN -> P--;
+                case LEFT_BRACE -> B++;
+                case RIGHT_BRACE -> B--;
+                default -> { }
+            }
+            return last = type;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Class LineMap.
+ * Start offsets of the lines of a source, in ascending order.
+ * The Lexer fills it while it scans, so byte offsets can be
+ * turned into lines and columns with a binary search instead
+ * of another pass over the source. Lines and columns are 1-based.
+ * 
+ * @see Lexer.java
+ */
+final class LineMap {
+    private int[] starts = new int[64];
+    private int count = 1;
+
+    /**
+     * Builds the map of a whole source in one pass, for sources
+     * that were not lexed.
+     * 
+     * @param source Source to index.
+     * @return LineMap
+     */
+    static LineMap of(Source source) {
+        LineMap map = new LineMap();
+        ByteBuffer bytes = source.bytes();
+        for (int i = 0, n = source.length(); i < n; i++) {
+            if (bytes.get(i) == '\n') map.add(i + 1);
+        }
+        return map;
+    }
+
+    /**
+     * Builds the map of an edited source from the map of the
+     * source before the edit. Lines before and after the edit are
+     * copied in blocks, only the inserted bytes are scanned.
+     * 
+     * @param offset Offset of the edit.
+     * @param removed Number of bytes removed at offset.
+     * @param source Edited source.
+     * @param inserted Number of bytes inserted at offset.
+     * @return LineMap
+     */
+    LineMap edit(int offset, int removed, Source source, int inserted) {
+        int head = line(offset), tail = line(offset + removed);
+        int kept = count - tail;
+        LineMap map = new LineMap();
+        map.starts = new int[Math.max(64, head + kept + 16)];
+        System.arraycopy(starts, 0, map.starts, 0, head);
+        map.count = head;
+
+        ByteBuffer bytes = source.bytes();
+        for (int at = offset; at < offset + inserted; at++) {
+            if (bytes.get(at) == '\n') map.add(at + 1);
+        }
+        if (map.count + kept > map.starts.length) map.starts = Arrays.copyOf(map.starts, map.count + kept);
+        int delta = inserted - removed;
+        int[] moved = map.starts;
+        for (int i = tail, to = map.count; i < count; i++, to++) moved[to] = starts[i] + delta;
+        map.count += kept;
+        return map;
+    }
+
+    /**
+     * Records the start of the next line.
+     * 
+     * @param offset Offset right after a '\n'.
+     */
+    void add(int offset) {
+        if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+        starts[count++] = offset;
+    }
+
+    /**
+     * Forgets every line after the given one, used when the
+     * Lexer backs up over a line break.
+     * 
+     * @param lines Number of lines to keep.
+     */
+    void truncate(int lines) {
+        if (lines < count) count = lines;
+    }
+
+    public int getLineCount() {
+        return count;
+    }
+
+    /**
+     * Returns the line containing an offset.
+     * 
+     * @param offset Byte offset.
+     * @return int
+     */
+    public int line(int offset) {
+        int lo = 0, hi = count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= offset) lo = mid; else hi = mid - 1;
+        }
+        return lo + 1;
+    }
+
+    /**
+     * Returns the column of an offset, counted in bytes.
+     * 
+     * @param offset Byte offset.
+     * @return int
+     */
+    public int column(int offset) {
+        return offset - starts[line(offset) - 1] + 1;
+    }
+
+    /**
+     * Returns the offset of the first byte of a line.
+     * 
+     * @param line Line number.
+     * @return int
+     */
+    public int lineStart(int line) {
+        return starts[line - 1];
+    }
+
+    /**
+     * Returns the offset one past the last byte of a line,
+     * not counting its line break.
+     * 
+     * @param line Line number.
+     * @param source Source the map belongs to.
+     * @return int
+     */
+    public int lineEnd(int line, Source source) {
+        int end;
+        if (line < count) {
+            end = starts[line] - 1;
+        } else {
+            // The map may stop at the last line lexed, scan to its break.
+            ByteBuffer bytes = source.bytes();
+            int length = source.length();
+            end = starts[line - 1];
+            while (end < length && bytes.get(end) != '\n') end++;
+        }
+        if (end > starts[line - 1] && source.bytes().get(end - 1) == '\r') end--;
+        return end;
+    }
+}
\ No newline at end of file
@@ -23,6 +23,218 @@ SOFTWARE.
 */
 package rookc;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import rookc.parser.AstArena;
+
+/**
+ * Class Main.
+ * Command line driver. Compiles every file given on the command
+ * line, and every .rook file below every directory given, on a
+ * fork-join pool in one JVM, in import order, see Scheduler.
+ * Diagnostics are printed per file in input order, whatever order
+ * the files finish in, through one buffered writer.
+ */
 public class Main {
-    
+    static final String VERSION = "0.1.0";
+
+    private static final String USAGE = "usage: rookc [-j threads] [-t] [-i | -c cachedir [-m megabytes]] <file.rook | directory>...";
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean imports = false, timing = false;
+        String cacheDir = null;
+        long cacheLimit = 256;
+        List<String> paths = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-j") && i + 1 < args.length) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    threads = 0;
+                }
+                if (threads < 1) {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+            } else if (args[i].equals("-i")) {
+                imports = true;
+            } else if (args[i].equals("-t")) {
+                timing = true;
+            } else if (args[i].equals("-c") && i + 1 < args.length) {
+                cacheDir = args[++i];
+            } else if (args[i].equals("-m") && i + 1 < args.length) {
+                try {
+                    cacheLimit = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    cacheLimit = 0;
+                }
+                if (cacheLimit < 1) {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+            } else if (args[i].startsWith("-")) {
+                System.err.println(USAGE);
+                System.exit(2);
+            } else {
+                paths.add(args[i]);
+            }
+        }
+
+        List<String> files;
+        Map<String, String> packages = new HashMap<>();
+        try {
+            files = collect(paths, packages);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (files.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        if (imports) {
+            System.exit(scanImports(files, threads) > 0 ? 1 : 0);
+        }
+
+        ParseCache cache = null;
+        if (cacheDir != null) {
+            try {
+                cache = ParseCache.open(Path.of(cacheDir), cacheLimit << 20);
+            } catch (IOException e) {
+                System.err.println("Error: cannot open cache " + cacheDir + ": " + e.getMessage());
+                System.exit(2);
+            }
+        }
+
+        System.exit(compile(files, packages, threads, cache, timing) > 0 ? 1 : 0);
+    }
+
+    /**
+     * Expands directories into the .rook files below them, in
+     * path order. Plain files are kept as given.
+     * 
+     * The package of a file below a directory is its path from
+     * that directory without the extension, with dots for the
+     * separators: a/b/c.rook is a.b.c. A plain file is named by
+     * its file name alone.
+     * 
+     * @param paths Files and directories from the command line.
+     * @param packages Filled with the package name of every file.
+     * @return List of files to compile.
+     * @throws IOException
+     */
+    static List<String> collect(List<String> paths, Map<String, String> packages) throws IOException {
+        List<String> files = new ArrayList<>();
+        for (String path : paths) {
+            Path p = Path.of(path);
+            if (Files.isDirectory(p)) {
+                List<Path> found;
+                try (Stream<Path> walk = Files.walk(p)) {
+                    found = walk
+                        .filter(f -> f.toString().endsWith(".rook") && Files.isRegularFile(f))
+                        .sorted()
+                        .collect(Collectors.toList());
+                }
+                for (Path f : found) {
+                    files.add(f.toString());
+                    packages.putIfAbsent(f.toString(), packageName(p.relativize(f)));
+                }
+            } else {
+                files.add(path);
+                packages.putIfAbsent(path, packageName(p.getFileName()));
+            }
+        }
+        return files;
+    }
+
+    private static String packageName(Path relative) {
+        StringBuilder sb = new StringBuilder();
+        for (Path part : relative) {
+            if (sb.length() > 0) sb.append('.');
+            sb.append(part);
+        }
+        String name = sb.toString();
+        return name.endsWith(".rook") ? name.substring(0, name.length() - 5) : name;
+    }
+
+    /**
+     * Compiles the files in parallel and in import order and
+     * prints their diagnostics in input order.
+     * 
+     * @param files Files to compile.
+     * @param packages Package name of every file.
+     * @param threads Number of worker threads.
+     * @param cache Parse cache, or null.
+     * @param timing Whether to print the time of every stage.
+     * @return Number of errors.
+     */
+    static int compile(List<String> files, Map<String, String> packages, int threads, ParseCache cache, boolean timing) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        int errors = 0;
+        try {
+            errors = Scheduler.build(files, packages, threads, cache, out, timing ? System.err : null);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+        return errors;
+    }
+
+    /**
+     * Prints the imports of every file, one line per file in input
+     * order: the path, a colon and the package names. Only the
+     * import declarations are read, see ImportScanner.
+     * 
+     * @param files Files to scan.
+     * @param threads Number of worker threads.
+     * @return Number of errors.
+     */
+    static int scanImports(List<String> files, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        int errors = 0;
+        try {
+            List<ForkJoinTask<CompilationUnit>> tasks = new ArrayList<>(files.size());
+            for (String file : files) {
+                tasks.add(pool.submit(() -> CompilationUnit.scanImports(file)));
+            }
+            for (ForkJoinTask<CompilationUnit> task : tasks) {
+                CompilationUnit unit = task.join();
+                AstArena tree = unit.getTree();
+                if (tree != null) {
+                    out.append(unit.getPath()).append(':');
+                    for (int node = tree.getFirstChild(tree.getRoot()); node != AstArena.NONE; node = tree.getNextSibling(node)) {
+                        int name = tree.getFirstChild(node);
+                        if (name != AstArena.NONE) out.append(' ').append(tree.getValue(name));
+                    }
+                    out.append('\n');
+                }
+                unit.getReport().flush(out);
+                errors += unit.getReport().getErrorCount();
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+        return errors;
+    }
 }
\ No newline at end of file
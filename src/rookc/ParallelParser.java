@@ -0,0 +1,297 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import rookc.parser.*;
+
+/**
+ * Class ParallelParser.
+ * Lexes and parses one large source on several cores. A pre-scan
+ * finds the func keywords at brace depth 0 and cuts the source in
+ * front of some of them into chunks of about the same size. Every
+ * chunk is lexed by its own task, the tokens are joined into one
+ * TokenBuffer, and every chunk is parsed by its own task again,
+ * into an AstArena of its own. The arenas are then joined under
+ * one ROOT in source order.
+ * 
+ * The Parser always starts a top level declaration at a func, so
+ * the chunks parse to the same subtrees and diagnostics as the
+ * whole source does. Diagnostics are positioned by offset and the
+ * pre-scan builds the LineMap, so lines are those of the file.
+ * When Parser.MAX_ERRORS is reached, only the chunk that reaches
+ * it is parsed again, with the errors left, so the parse stops
+ * where a single parser stops.
+ * 
+ * @see Parser.java
+ */
+final class ParallelParser {
+    /** Smallest chunk worth a task of its own. */
+    static final int MIN_CHUNK = 1 << 20;
+
+    private final Source source;
+    private final Report report;
+    private final AstArena tree;
+    private final LineMap lineMap = new LineMap();
+    private TokenBuffer tokens;
+    /** Offsets and lines of the chunk starts after the first. */
+    private int[] cuts = new int[16], cutLines = new int[16];
+    private int cutCount;
+
+    /**
+     * Constructor for ParallelParser class.
+     * Parses the source in up to the given number of chunks.
+     * 
+     * @param source Source to parse.
+     * @param report Report of the compilation unit.
+     * @param chunks Number of chunks to aim for, see chunks.
+     */
+    ParallelParser(Source source, Report report, int chunks) {
+        this.source = source;
+        this.report = report;
+        this.tree = new AstArena(Math.max(256, source.length() / 8));
+        scan(Math.max(1, source.length() / Math.max(1, chunks)));
+        report.setLineMap(lineMap);
+        parse();
+    }
+
+    /**
+     * method chunks.
+     * Returns the number of chunks a source is worth splitting into
+     * on the pool of the current thread, 1 to parse it with Parser.
+     * 
+     * @param source Source to parse.
+     * @return int
+     */
+    static int chunks(Source source) {
+        ForkJoinPool pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        int threads = pool.getParallelism();
+        if (threads < 2) return 1;
+        // A few chunks per thread even out declarations of different sizes.
+        return (int) Math.max(1, Math.min(threads * 4L, source.length() / MIN_CHUNK));
+    }
+
+    /**
+     * method scan.
+     * Finds the chunk starts and fills the LineMap in one pass.
+     * A chunk starts at a func at brace depth 0 once the chunk
+     * before it holds chunkSize bytes, never at the first func, so
+     * every chunk but the first follows a function declaration.
+     * String and character literals and // comments are skipped as
+     * the Lexer skips them, so every start lies between two tokens.
+     * 
+     * @param chunkSize Number of bytes to aim for per chunk.
+     */
+    private void scan(int chunkSize) {
+        final ByteBuffer src = source.bytes();
+        final int end = source.length();
+        int depth = 0, line = 1, next = chunkSize;
+        boolean seenFunc = false;
+
+        int i = 0;
+        while (i < end) {
+            int c = src.get(i);
+            if (c == '\n') {
+                lineMap.add(++i);
+                line++;
+            } else if (c == '{') {
+                depth++;
+                i++;
+            } else if (c == '}') {
+                depth--;
+                i++;
+            } else if (c == '"' || c == '\'') {
+                // Runs to the closing quote or the end of the file, a backslash escapes any byte.
+                i++;
+                while (i < end) {
+                    int b = src.get(i++);
+                    if (b == c) break;
+                    if (b == '\\' && i < end) b = src.get(i++);
+                    if (b == '\n') {
+                        lineMap.add(i);
+                        line++;
+                    }
+                }
+            } else if (c == '/' && i + 1 < end && src.get(i + 1) == '/') {
+                // Up to the line break, which is counted above.
+                while (i < end && src.get(i) != '\n') i++;
+            } else if (isLetter(c)) {
+                int start = i;
+                while (i < end && (isLetter(src.get(i)) || isDigit(src.get(i)))) i++;
+                if (depth == 0 && i - start == 4 && src.get(start) == 'f' && src.get(start + 1) == 'u'
+                    && src.get(start + 2) == 'n' && src.get(start + 3) == 'c') {
+                    if (seenFunc && start >= next) {
+                        cut(start, line);
+                        next = start + chunkSize;
+                    }
+                    seenFunc = true;
+                }
+            } else if (isDigit(c)) {
+                // A number and any letters after it, none of them starts a func.
+                while (i < end && (isLetter(src.get(i)) || isDigit(src.get(i)) || src.get(i) == '.')) i++;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static boolean isLetter(int c) {
+        // Bytes above 0x7F may be letters of an identifier, see Lexer.letter. A
+        // func after one that is not is only a missed cut.
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c < 0;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void cut(int offset, int line) {
+        if (cutCount == cuts.length) {
+            cuts = Arrays.copyOf(cuts, cutCount * 2);
+            cutLines = Arrays.copyOf(cutLines, cutCount * 2);
+        }
+        cuts[cutCount] = offset;
+        cutLines[cutCount++] = line;
+    }
+
+    private void parse() {
+        final int n = cutCount + 1;
+        TokenBuffer[] parts = new TokenBuffer[n];
+        Report[] lexReports = new Report[n], parseReports = new Report[n];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            final int chunk = k;
+            tasks.add(ForkJoinTask.adapt(() -> {
+                lexReports[chunk] = new Report(source);
+                Lexer lex = new Lexer(source, lexReports[chunk]);
+                // Lines come from the map scan built for the whole source.
+                lex.lineStarts = false;
+                if (chunk > 0) lex.reset(cuts[chunk - 1], cutLines[chunk - 1], TokenType.NONE);
+                parts[chunk] = TokenBuffer.range(lex, (chunk < cutCount) ? cuts[chunk] : Integer.MAX_VALUE);
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        tokens = TokenBuffer.concat(lineMap, parts);
+
+        final int[] firsts = new int[n + 1];
+        for (int k = 0; k < n; k++) firsts[k + 1] = firsts[k] + parts[k].size();
+        // The last chunk ends at its EOF.
+        firsts[n]--;
+
+        final AstArena[] trees = new AstArena[n];
+        final boolean[] aligned = new boolean[n];
+        final int[] errors = new int[n];
+        tasks.clear();
+        for (int k = 0; k < n; k++) {
+            final int chunk = k;
+            tasks.add(ForkJoinTask.adapt(() -> {
+                parseReports[chunk] = new Report(source);
+                Parser parser = new Parser(tokens, parseReports[chunk], firsts[chunk], chunk > 0);
+                trees[chunk] = (chunk == 0) ? tree : new AstArena(Math.max(256, (firsts[chunk + 1] - firsts[chunk]) / 2));
+                while (parser.getPosition() < firsts[chunk + 1]) {
+                    trees[chunk].appendChild(trees[chunk].getRoot(), parser.parseTopLevel(trees[chunk]));
+                }
+                aligned[chunk] = parser.getPosition() == firsts[chunk + 1];
+                errors[chunk] = parser.getErrorCount();
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        // Chunks after the one that reaches the cap are never parsed by a single parser.
+        int used = n, before = 0;
+        boolean split = true, capped = false;
+        for (int k = 0; k < n && !capped; k++) {
+            split &= aligned[k];
+            capped = before + errors[k] >= Parser.MAX_ERRORS;
+            if (capped) used = k + 1;
+            else before += errors[k];
+        }
+        if (!split) {
+            // A declaration ran past its chunk, left to a single parser.
+            Parser parser = new Parser(source, report);
+            tree.clear();
+            parser.parseInto(tree);
+            tokens = parser.getTokens();
+            return;
+        }
+
+        int end = tokens.size() - 1;
+        if (capped) {
+            // Only the chunk that reaches the cap is parsed again, with the errors left.
+            final int chunk = used - 1, limit = Parser.MAX_ERRORS - before;
+            parseReports[chunk] = new Report(source);
+            Parser parser = new Parser(tokens, parseReports[chunk], firsts[chunk], chunk > 0);
+            parser.setErrorLimit(limit);
+            trees[chunk].clear();
+            while (parser.getErrorCount() < limit && parser.getPosition() < firsts[chunk + 1]) {
+                trees[chunk].appendChild(trees[chunk].getRoot(), parser.parseTopLevel(trees[chunk]));
+            }
+            end = parser.getPosition();
+        }
+
+        // Lexer diagnostics come first at an offset, as they do when lexing ahead of the parser.
+        // A single parser stops lexing at the token after the last declaration it parses.
+        int lexed = tokens.start(end);
+        for (int k = 0; k < used; k++) report.addAll(lexReports[k].take(Integer.MIN_VALUE, lexed + 1));
+        if (end == tokens.size() - 1) tokens.checkBalance(report);
+        for (int k = 0; k < used; k++) {
+            report.addAll(parseReports[k]);
+            if (k > 0) tree.appendChildren(trees[k]);
+        }
+    }
+
+    /**
+     * Returns the tree of the whole source.
+     * 
+     * @return AstArena
+     */
+    AstArena getTree() {
+        return tree;
+    }
+
+    /**
+     * Builds the Node tree of the whole source, see AstArena.toNode.
+     * 
+     * @return Node
+     */
+    public Node getRootNode() {
+        return tree.toNode(tree.getRoot());
+    }
+
+    /**
+     * Returns the tokens of the whole source, the tree refers
+     * to them by index.
+     * 
+     * @return TokenBuffer
+     */
+    TokenBuffer getTokens() {
+        return tokens;
+    }
+}
\ No newline at end of file
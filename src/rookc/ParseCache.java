@@ -0,0 +1,329 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import rookc.parser.*;
+
+/**
+ * Class ParseCache.
+ * Directory of parse results, one file per source content. An
+ * entry is named by the SHA-256 of the compiler build and the
+ * source bytes, so an unchanged file is never lexed or parsed
+ * again, whatever its path or modification time. The build is
+ * the bytecode of the classes that decide what a parse produces,
+ * so any change to the front end starts from an empty cache
+ * without a version bump.
+ * 
+ * An entry holds the diagnostics of the parse followed by the
+ * tree in the format of AstWriter, behind a CRC-32 of both. The
+ * tree keeps the byte offset of the token of every node, so
+ * diagnostics made from a cached tree are positioned like the
+ * ones of a parse. Values are interned straight from the mapped
+ * file on load. An entry that
+ * fails the check or cannot be read is a miss and is deleted.
+ * 
+ * The directory is kept under a size limit by dropping the least
+ * recently used entries. Use is recorded in the modification
+ * time of the entry, so the order survives between runs.
+ */
+final class ParseCache {
+    private static final int MAGIC = 0x524f4f4b; // "ROOK"
+    private static final int FORMAT = 3;
+    private static final String SUFFIX = ".ast";
+    /** Classes whose code decides the tree and the diagnostics of a parse. */
+    private static final Class<?>[] FRONT_END = {
+        Lexer.class, Keywords.class, Swar.class, TokenType.class, TokenBuffer.class, LineMap.class, ImportScanner.class,
+        Parser.class, ParallelParser.class, Report.class, Node.class, NodeType.class, AstArena.class,
+        AstWriter.class
+    };
+    /** SHA-256 of the FRONT_END class files, see key. */
+    private static final byte[] BUILD = build();
+
+    private final Path dir;
+    private final long limit;
+    /** Size of every entry, least recently used first. */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long total;
+
+    private ParseCache(Path dir, long limit) {
+        this.dir = dir;
+        this.limit = limit;
+    }
+
+    /**
+     * Opens a cache directory, creating it if needed.
+     * 
+     * @param dir Cache directory.
+     * @param limit Size limit in bytes.
+     * @return ParseCache
+     * @throws IOException
+     */
+    static ParseCache open(Path dir, long limit) throws IOException {
+        Files.createDirectories(dir);
+        ParseCache cache = new ParseCache(dir, limit);
+
+        ArrayList<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(dir)) {
+            list.filter(f -> f.getFileName().toString().endsWith(SUFFIX)).forEach(files::add);
+        }
+        HashMap<Path, FileTime> used = new HashMap<>();
+        for (Path file : files) {
+            used.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(used::get));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            cache.entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+            cache.total += size;
+        }
+        return cache;
+    }
+
+    private static byte[] build() {
+        MessageDigest digest = sha256();
+        digest.update((Main.VERSION + '/' + FORMAT + '\n').getBytes(StandardCharsets.UTF_8));
+        for (Class<?> c : FRONT_END) {
+            String name = c.getName();
+            try (InputStream in = c.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+                if (in == null) throw new IOException("No class file for " + name);
+                digest.update(in.readAllBytes());
+            } catch (IOException e) {
+                // Never share entries with a build that cannot be identified.
+                digest.update(Long.toString(System.nanoTime()).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the key of a source.
+     * 
+     * @param source Source to hash.
+     * @return String
+     */
+    static String key(Source source) {
+        MessageDigest digest = sha256();
+        digest.update(BUILD);
+        digest.update(source.bytes().duplicate().clear());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Loads the tree of a source and adds its diagnostics to the
+     * report.
+     * 
+     * @param key Key of the source, see key.
+     * @param report Report of the compilation unit.
+     * @return Entry, or null if the cache has no valid entry.
+     */
+    Entry load(String key, Report report) {
+        Path file = dir.resolve(key + SUFFIX);
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            return null;
+        }
+
+        Report cached = new Report(report.getFilePath());
+        Entry entry;
+        try {
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT) throw new IllegalArgumentException("Not a cache entry");
+            int crc = in.getInt();
+            CRC32 check = new CRC32();
+            check.update(in.duplicate());
+            if ((int) check.getValue() != crc) throw new IllegalArgumentException("Damaged cache entry");
+            cached.restore(in);
+            AstReader tree = new AstReader(in);
+            entry = new Entry(tree);
+        } catch (RuntimeException e) {
+            // Truncated, damaged or foreign file, a miss. The next store replaces it.
+            drop(key);
+            return null;
+        }
+
+        report.addAll(cached);
+        synchronized (this) {
+            entries.get(key);
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only the eviction order is lost.
+        }
+        return entry;
+    }
+
+    /**
+     * Deletes an entry that cannot be read.
+     */
+    private void drop(String key) {
+        synchronized (this) {
+            Long size = entries.remove(key);
+            if (size != null) total -= size;
+        }
+        try {
+            Files.deleteIfExists(dir.resolve(key + SUFFIX));
+        } catch (IOException e) {
+            // Still mapped elsewhere, the next store replaces it.
+        }
+    }
+
+    /**
+     * Stores the tree and the diagnostics of a source, then drops
+     * the least recently used entries over the size limit.
+     * 
+     * @param key Key of the source, see key.
+     * @param tree Tree of the source.
+     * @param tokens Tokens the tree refers to.
+     * @param report Report holding the diagnostics of the parse.
+     * @throws IOException
+     */
+    void store(String key, AstArena tree, TokenBuffer tokens, Report report) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        DataOutputStream out = new DataOutputStream(bytes);
+        report.save(out);
+        out.flush();
+        AstWriter.write(tree, bytes, tokens::start);
+        byte[] payload = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        bytes.reset();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+        out.flush();
+
+        // Readers only ever see a complete entry.
+        Path file = dir.resolve(key + SUFFIX);
+        Path temp = Files.createTempFile(dir, key, ".tmp");
+        try {
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        ArrayList<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = entries.put(key, (long) bytes.size());
+            total += bytes.size() - ((previous != null) ? previous : 0);
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (total > limit && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                total -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String name : evicted) {
+            try {
+                Files.deleteIfExists(dir.resolve(name + SUFFIX));
+            } catch (IOException e) {
+                // Still mapped elsewhere, the next run retries.
+            }
+        }
+    }
+
+    /**
+     * Class Entry.
+     * A tree loaded from the cache. There are no tokens on a hit,
+     * the byte offsets of the tokens the nodes refer to are kept
+     * instead.
+     */
+    static final class Entry {
+        private final AstArena tree;
+        /** Token index << 32 | byte offset, ordered by token index. */
+        private final long[] offsets;
+
+        private Entry(AstReader ast) {
+            int root = ast.getRoot();
+            tree = new AstArena(root + 1);
+            for (int i = 0, child = ast.getFirstChild(root); i < ast.length(root); i++, child = ast.skip(child)) {
+                tree.append(tree.getRoot(), ast, child);
+            }
+            long[] pairs = new long[root];
+            int count = 0;
+            for (int node = 0; node < root; node++) {
+                int token = ast.getToken(node), offset = ast.getOffset(node);
+                if (token >= 0 && offset >= 0) pairs[count++] = (long) token << 32 | offset;
+            }
+            offsets = Arrays.copyOf(pairs, count);
+            Arrays.sort(offsets);
+        }
+
+        AstArena getTree() {
+            return tree;
+        }
+
+        /**
+         * Returns the byte offset of a token of the tree.
+         * 
+         * @param token Token index of a node.
+         * @return Offset, or -1 if no node has the token.
+         */
+        int offset(int token) {
+            int index = Arrays.binarySearch(offsets, (long) token << 32);
+            if (index < 0) index = -index - 1;
+            return (index < offsets.length && offsets[index] >>> 32 == token) ? (int) offsets[index] : -1;
+        }
+    }
+}
\ No newline at end of file
@@ -23,9 +23,8 @@ SOFTWARE.
 */
 package rookc;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 
 import rookc.parser.*;
 
@@ -34,35 +33,166 @@ import rookc.parser.*;
  * Implements the parsing methods for Rookc Java parser.
  * @author Srcydev
  * @see Lexer.java
+ * @see TokenBuffer.java
  */
 final class Parser {
+    /** Errors reported per parser, parsing stops after the last one. */
+    static final int MAX_ERRORS = 100;
+    static final String TOO_MANY_ERRORS = "Too many errors, the rest of the file is not parsed.";
+
     /** Instance Variables. */
-    private String file;
-    private String sep = System.lineSeparator();
-    private Lexer lex = new Lexer(this.file);
-    private Node rootNode = new Node("ROOT", NodeType.ROOT);
-    private TokenType type = lex.getNextTokenType();
+    private final Report report;
+    private TokenBuffer tokens;
+    private int pos;
+    private Node rootNode = new Node(Interner.ROOT, NodeType.ROOT);
+    /** Arena the parse routines build nodes in, see parseInto and parseTopLevel. */
+    private AstArena tree;
+    /** Arena reused for the Node trees of parseTopLevel and parseExpression. */
+    private AstArena scratch;
+    private TokenType type;
+    /** Set once a top level declaration other than an import is parsed. */
+    private boolean pastImports;
+    /** Errors reported by this parser. */
+    private int errors;
+    /** Errors after which parsing stops, MAX_ERRORS unless set. */
+    private int maxErrors = MAX_ERRORS;
+    /** Set by an error until the parser is back in sync, errors in between are not reported. */
+    private boolean panic;
+
+    /** Work stacks of parseExpression, operators are token index << 1 | unary. */
+    private int[] operatorStack = new int[16];
+    private int operatorCount;
+    private int[] operandStack = new int[16];
+    private int operandCount;
+
+    /** IF, ELIF and ELSE nodes whose bodies parseIf is in, innermost last. */
+    private int[] branchStack = new int[16];
+    private int branchCount;
 
     /**
      * Public constructor for Parser class.
-     * This constructor takes the filename and reads it
-     * line by line. Then it appends it to the instance 
-     * variable file.
+     * This constructor takes the filename and loads
+     * the whole file in one pass, see Source.read.
+     * Diagnostics go to a new Report, see getReport.
      * 
      * @param filename Name along with the relative / 
      * absolute path of the file. 
      */
     public Parser (String filename) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                this.file += line + sep;
-            }
+        this(load(filename));
+    }
+
+    private Parser (Source source) {
+        this(source, new Report(source));
+    }
+
+    /**
+     * Public constructor for Parser class.
+     * Parses a Source that is already loaded. Tokens are
+     * lexed as the parser reaches them, see TokenBuffer.lazy.
+     * 
+     * @param source Source to parse.
+     * @param report Report of the compilation unit.
+     */
+    public Parser (Source source, Report report) {
+        this.report = report;
+        this.tokens = TokenBuffer.lazy(new Lexer(source, report));
+        report.setLineMap(tokens.lineMap());
+        this.type = tokens.type(0);
+    }
+
+    /**
+     * Constructor for Parser class.
+     * Parses tokens that are already lexed, starting at a token
+     * that begins a top level declaration.
+     * 
+     * @param tokens Tokens of the source.
+     * @param report Report of the compilation unit.
+     * @param pos Index of the first token to parse.
+     * @param pastImports Whether a declaration other than an import
+     * comes before pos.
+     */
+    Parser (TokenBuffer tokens, Report report, int pos, boolean pastImports) {
+        this.report = report;
+        this.tokens = tokens;
+        this.pos = pos;
+        this.type = tokens.type(pos);
+        this.pastImports = pastImports;
+    }
+
+    private static Source load(String filename) {
+        try {
+            return Source.read(filename);
         } catch (IOException e) {
             e.printStackTrace();
+            return Source.of(filename, "");
         }
     }
 
+    /**
+     * method value.
+     * Returns the Interner id of the current token's text.
+     * 
+     * @return int
+     */
+    private int value() {
+        return valueAt(pos);
+    }
+
+    private int valueAt(int index) {
+        int id = tokens.id(index);
+        return (id >= 0) ? id : Interner.intern(tokens.source().bytes(), tokens.start(index), tokens.length(index));
+    }
+
+    public Report getReport() {
+        return report;
+    }
+
+    public Node getRootNode() {
+        return rootNode;
+    }
+
+    TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Returns the number of errors this parser reported.
+     * 
+     * @return int
+     */
+    int getErrorCount() {
+        return errors;
+    }
+
+    /**
+     * Sets the number of errors after which the parser stops.
+     * 
+     * @param maxErrors Error limit, MAX_ERRORS by default.
+     */
+    void setErrorLimit(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Returns whether a declaration other than an import was parsed
+     * or came before the first token, see parseImport.
+     * 
+     * @return boolean
+     */
+    boolean isPastImports() {
+        return pastImports;
+    }
+
+    /**
+     * Returns the index of the current token.
+     * 
+     * @return int
+     */
+    int getPosition() {
+        return pos;
+    }
+
     /**
      * method setNext.
      * Sets the next TokenType.
@@ -70,33 +200,164 @@ final class Parser {
      */
 
     public void setNext() {
-        this.type = this.lex.getNextTokenType();
+        this.type = tokens.type(++pos);
     }
     
     public void parse() {
     
         // Parse statements until the end of the file
-        while (type != TokenType.EOF) {
-            if (type == TokenType.FUNC) {
-                // Parse function declarations
-                Node funcNode = parseFunctionDeclaration();
-                rootNode.addChild(funcNode);
-            } else {
-                // Parse other statements
-                Node stmtNode = parseStatement();
-                rootNode.addChild(stmtNode);
-            }
+        parse((node, token) -> rootNode.addChild(node));
+    }
+
+    /**
+     * method parse.
+     * Streaming mode of parse. Every top level subtree is handed
+     * to the listener as soon as it is complete and is not kept by
+     * the parser, so the Node objects alive at a time are bounded
+     * by the largest declaration rather than the file. The root
+     * node stays empty.
+     * 
+     * Parsing stops early once MAX_ERRORS errors are reported,
+     * see setErrorLimit.
+     * 
+     * @param listener Listener to call once per top level subtree.
+     */
+    public void parse(Listener listener) {
+        while (type != TokenType.EOF && errors < maxErrors) {
+            int start = pos;
+            listener.accept(parseTopLevel(), start);
+        }
+    }
+
+    /**
+     * method parseInto.
+     * Parses the file into an AstArena instead of the Node tree,
+     * the tree CompilationUnit keeps. The parse routines add their
+     * nodes to the arena directly and every top level subtree goes
+     * under its ROOT, no Node objects are made. Token indexes in
+     * the arena refer to this parser's tokens.
+     * 
+     * @param arena Arena to append to.
+     */
+    public void parseInto(AstArena arena) {
+        while (type != TokenType.EOF && errors < maxErrors) {
+            arena.appendChild(arena.getRoot(), parseTopLevel(arena));
+        }
+    }
+
+    /**
+     * method parseTopLevel.
+     * Parses one top level declaration or statement into a Node
+     * tree and moves past it. The nodes are built in a scratch
+     * arena that is reused for the next declaration.
+     * 
+     * @return Node
+     */
+    Node parseTopLevel() {
+        tree = scratch();
+        int node = parseDeclaration();
+        return (node == AstArena.NONE) ? null : tree.toNode(node);
+    }
+
+    /**
+     * method parseTopLevel.
+     * Parses one top level declaration or statement into an arena
+     * and moves past it. The subtree has no parent yet.
+     * 
+     * @param arena Arena to add the nodes to.
+     * @return Index of the subtree, a null child if it could not be parsed.
+     */
+    int parseTopLevel(AstArena arena) {
+        tree = arena;
+        int node = parseDeclaration();
+        return (node == AstArena.NONE) ? arena.add(null, AstArena.NONE, AstArena.NONE) : node;
+    }
+
+    private int parseDeclaration() {
+        panic = errors >= maxErrors;
+        int node;
+        if (type == TokenType.IMPORT) {
+            node = parseImport();
+        } else if (type == TokenType.FUNC) {
+            // Parse function declarations
+            node = parseFunctionDeclaration();
+        } else {
+            // Parse other statements
+            node = parseStatement();
+        }
+        if (node == AstArena.NONE || tree.getType(node) != NodeType.IMPORT) {
+            pastImports = true;
+        }
+        setNext();
+        return node;
+    }
+
+    private AstArena scratch() {
+        if (scratch == null) scratch = new AstArena(64);
+        scratch.clear();
+        return scratch;
+    }
+
+    /**
+     * Adds a node to the arena, see AstArena.add.
+     * 
+     * @return Index of the node.
+     */
+    private int node(int value, NodeType nodeType, int token) {
+        return tree.add(nodeType, token, value);
+    }
+
+    /**
+     * Makes child, or a null child for NONE, the last child of parent.
+     */
+    private void addChild(int parent, int child) {
+        tree.appendChild(parent, (child == AstArena.NONE) ? tree.add(null, AstArena.NONE, AstArena.NONE) : child);
+    }
+
+    /**
+     * method parseImport.
+     * Parses an import declaration, see ImportScanner. Imports
+     * are only allowed before every other declaration.
+     * 
+     * @return Index of the IMPORT node.
+     */
+    private int parseImport() {
+        if (pastImports) {
+            error("Parse error. Imports must come before other declarations.");
+        }
+        int importNode = node(Interner.IMPORT, NodeType.IMPORT, pos);
+
+        setNext();
+        if (type != TokenType.IDENTIFIER) {
+            error(ImportScanner.EXPECTED_NAME);
+            synchronize();
+            return importNode;
+        }
+        int first = pos;
+        ImportScanner.PackageName name = new ImportScanner.PackageName(tokens.source(), tokens.start(pos),
+            tokens.length(pos), tokens.id(pos));
+        setNext();
+        while (type == TokenType.DOT && tokens.type(pos + 1) == TokenType.IDENTIFIER) {
+            name.add(tokens.start(pos), tokens.start(pos + 1), tokens.length(pos + 1));
+            setNext();
             setNext();
         }
+        addChild(importNode, node(name.intern(), NodeType.PKG_NAME, first));
+
+        if (type != TokenType.SEMICOLON) {
+            error(ImportScanner.EXPECTED_SEMICOLON);
+            synchronize();
+        }
+        return importNode;
     }
 
-    private Node parseParameterList() {
-        Node paramListNode = new Node("PARAM_LIST", NodeType.PARAM);
+    private int parseParameterList() {
+        int paramListNode = node(Interner.PARAM_LIST, NodeType.PARAM, AstArena.NONE);
     
         setNext();
         while (type == TokenType.IDENTIFIER) {
-            Node paramNode = new Node(this.lex.getTokenValue(), NodeType.PARAM);
-            paramListNode.addChild(paramNode);
+            int paramNode = node(value(), NodeType.PARAM, pos);
+            addChild(paramListNode, paramNode);
     
             setNext();
             if (type == TokenType.COMMA) {
@@ -107,77 +368,165 @@ final class Parser {
         }
     
         if (type != TokenType.RIGHT_PAREN) {
-            Report.error("Parse error. Expected ')'.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+            error("Parse error. Expected ')'.");
+            return paramListNode;
         }
         setNext();
     
         return paramListNode;
     }
         
-    private Node parseFunctionDeclaration() {
-        Node funcNode = new Node("FUNCTION", NodeType.FUNC);
+    private int parseFunctionDeclaration() {
+        int funcNode = node(Interner.FUNCTION, NodeType.FUNC, AstArena.NONE);
 
         // Parse function name
         setNext();
         if (type != TokenType.IDENTIFIER) {
-            Report.error("Parse error. Expected function name.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+            error("Parse error. Expected function name.");
+            synchronize();
+            return funcNode;
         }
-        Node nameNode = new Node(this.lex.getTokenValue(), NodeType.IDENTIFIER);
-        funcNode.addChild(nameNode);
+        int nameNode = node(value(), NodeType.IDENTIFIER, pos);
+        addChild(funcNode, nameNode);
 
         // Parse parameter list
         setNext();
         if (type != TokenType.LEFT_PAREN) {
-            Report.error("Parse error. Expected '('.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+            error("Parse error. Expected '('.");
+            synchronize();
+            return funcNode;
+        }
+        int paramListNode = parseParameterList();
+        addChild(funcNode, paramListNode);
+        if (panic) {
+            synchronize();
+            return funcNode;
         }
-        Node paramListNode = parseParameterList();
-        funcNode.addChild(paramListNode);
 
-        // Parse return type
-        setNext();
+        // Parse return type, parseParameterList has moved past ')'.
         if (type != TokenType.COLON) {
-            Report.error("Parse error. Expected return type.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+            error("Parse error. Expected return type.");
+            synchronize();
+            return funcNode;
         }
         setNext();
-        if (type != TokenType.IDENTIFIER) {
-            Report.error("Parse error. Invalid return type.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+        if (!isReturnType(type)) {
+            error("Parse error. Invalid return type.");
+            synchronize();
+            return funcNode;
         }
-        Node returnTypeNode = new Node(this.lex.getTokenValue(), NodeType.RETURN_TYPE);
-        funcNode.addChild(returnTypeNode);
+        int returnTypeNode = node(value(), NodeType.RETURN_TYPE, pos);
+        addChild(funcNode, returnTypeNode);
 
         // Parse function body
         setNext();
         if (type != TokenType.LEFT_BRACE) {
-            Report.error("Parse error. Expected '{'.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+            error("Parse error. Expected '{'.");
+            synchronize();
+            return funcNode;
         }
         setNext();
-        while (type != TokenType.RIGHT_BRACE) {
-            Node statementNode = parseStatement();
-            if (statementNode != null) {
-                funcNode.addChild(statementNode);
+        while (!atBlockEnd()) {
+            int statementNode = parseStatement();
+            if (statementNode != AstArena.NONE) {
+                addChild(funcNode, statementNode);
             }
+            setNext();
         }
-        setNext();
 
         // Check if function has a return statement and return type
         boolean hasReturn = false;
-        for (Node child : funcNode.getChildren()) {
-            if (child.getType() == NodeType.RETURN) {
+        for (int child = tree.getFirstChild(funcNode); child != AstArena.NONE; child = tree.getNextSibling(child)) {
+            if (tree.getType(child) == NodeType.RETURN) {
                 hasReturn = true;
                 break;
             }
         }
-        if (hasReturn && returnTypeNode.getChildren().size() == 0) {
-            Report.error("Parse error. Function with return statement must have a return type specified.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
-        } else if (!hasReturn && returnTypeNode.getChildren().size() > 0) {
-            Report.warning("Function with return type specified does not have a return statement.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+        if (hasReturn && tree.getFirstChild(returnTypeNode) == AstArena.NONE) {
+            report.error("Parse error. Function with return statement must have a return type specified.", tokens.start(pos));
+        } else if (!hasReturn && tree.getFirstChild(returnTypeNode) != AstArena.NONE) {
+            report.warning("Function with return type specified does not have a return statement.", tokens.start(pos));
         }
 
         return funcNode;
     }
     
-    private Node parseStatement() {
-        Node stmtNode = null;
+    /**
+     * method error.
+     * Reports a syntax error at the current token and enters panic
+     * mode, see synchronize. Errors made in panic mode follow from
+     * the first one and are dropped.
+     * 
+     * @param message Message of the error.
+     */
+    private void error(String message) {
+        if (panic) return;
+        panic = true;
+        errors++;
+        report.error(message, tokens.start(pos));
+        if (errors == maxErrors) {
+            report.error(TOO_MANY_ERRORS, tokens.start(pos));
+        }
+    }
+
+    /**
+     * method synchronize.
+     * Panic mode recovery. Skips the rest of a malformed construct,
+     * up to a ';', up to the '}' of a block opened in it, or up to
+     * the token before a '}' that closes an enclosing block, so the
+     * caller's setNext moves to the next statement. A func and
+     * the end of the file are never skipped, the parser steps back
+     * in front of them. Every token is skipped at most once, so a
+     * malformed file still parses in linear time.
+     */
+    private void synchronize() {
+        int depth = 0;
+        while (true) {
+            if (type == TokenType.FUNC || type == TokenType.EOF) {
+                pos--;
+                break;
+            }
+            if (type == TokenType.LEFT_BRACE) {
+                depth++;
+            } else if (type == TokenType.RIGHT_BRACE && depth > 0) {
+                if (--depth == 0) break;
+            } else if (type == TokenType.SEMICOLON && depth == 0) {
+                break;
+            }
+            if (depth == 0 && tokens.type(pos + 1) == TokenType.RIGHT_BRACE) break;
+            setNext();
+        }
+        panic = errors >= maxErrors;
+    }
+
+    /**
+     * method atBlockEnd.
+     * Checks if the loop over the statements of a block is done.
+     * A block ends at its '}'. A func or the end of the file ends
+     * every open block with an error, the parser steps back so the
+     * enclosing loops see them as well.
+     * 
+     * @return boolean
+     */
+    private boolean atBlockEnd() {
+        if (type == TokenType.RIGHT_BRACE) return true;
+        if (type == TokenType.FUNC || type == TokenType.EOF) {
+            error("Parse error. Expected '}'.");
+            pos--;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isReturnType(TokenType type) {
+        return switch (type) {
+            case IDENTIFIER, INT, FLOAT, CHAR, BOOL, STRING -> true;
+            default -> false;
+        };
+    }
+
+    private int parseStatement() {
+        int stmtNode = AstArena.NONE;
     
         if (type == TokenType.INT) {
             // Parse variable declarations
@@ -186,173 +535,284 @@ final class Parser {
             // Parse IF statements
             stmtNode = parseIf();
         } else {
-            Report.error("Parse error. Unexpected token.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+            error("Parse error. Unexpected token.");
+            synchronize();
         }
     
         return stmtNode;
     }
 
-    private Node parseExpression() {
-        Node exprNode = null;
-    
-        if (type == TokenType.INTEGER_LITERAL || type == TokenType.FLOATING_LITERAL) {
-            // Parse numeric literals
-            Node literalNode = new Node(this.lex.getTokenValue(), NodeType.LITERAL);
-            exprNode = literalNode;
-            setNext();
-        } else if (type == TokenType.IDENTIFIER) {
-            // Parse variable references
-            Node nameNode = new Node(this.lex.getTokenValue(), NodeType.IDENTIFIER);
-            exprNode = nameNode;
-            setNext();
-        } else if (type == TokenType.LEFT_PAREN) {
-            // Parse parenthesized expressions
-            setNext();
-            exprNode = parseExpression();
-            if (type != TokenType.RIGHT_PAREN) {
-                Report.error("Parse error. Expected ')'.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+    /**
+     * method parseExpression.
+     * Parses an expression by precedence climbing, see
+     * NodeType.precedence. Operators and operands are kept on
+     * explicit stacks instead of the Java stack, so the time is
+     * linear and the call depth constant in the length and the
+     * nesting of the expression. Binary operators become BIN_OP
+     * nodes with two children, prefix operators UN_OP nodes with
+     * one child.
+     * 
+     * @return Node
+     */
+    Node parseExpression() {
+        tree = scratch();
+        int node = expression();
+        return (node == AstArena.NONE) ? null : tree.toNode(node);
+    }
+
+    /**
+     * Parses an expression into the arena, see parseExpression.
+     * 
+     * @return Index of the expression tree, NONE if there is none.
+     */
+    private int expression() {
+        final int base = operatorCount, operandBase = operandCount;
+        boolean expectOperand = true;
+
+        while (true) {
+            if (expectOperand) {
+                if (NodeType.isUnOp(type)) {
+                    pushOperator(pos, true);
+                } else if (type == TokenType.LEFT_PAREN) {
+                    pushOperator(pos, false);
+                } else if (isOperand(type)) {
+                    NodeType nodeType = (type == TokenType.IDENTIFIER) ? NodeType.IDENTIFIER : NodeType.LITERAL;
+                    // String literals stay out of the interner, see TokenBuffer.literal.
+                    int value = (type == TokenType.STRING_LITERAL) ? -1 : value();
+                    pushOperand(node(value, nodeType, pos));
+                    expectOperand = false;
+                } else {
+                    error("Parse error. Unexpected token.");
+                    // Stand in for the missing operand so the operators keep their arity.
+                    pushOperand(AstArena.NONE);
+                    break;
+                }
+                setNext();
+            } else if (NodeType.isBinOp(type)) {
+                int precedence = NodeType.precedence(type);
+                boolean right = NodeType.isRightAssociative(type);
+                while (operatorCount > base) {
+                    int top = operatorStack[operatorCount - 1];
+                    if (tokens.type(top >> 1) == TokenType.LEFT_PAREN) break;
+                    int topPrecedence = ((top & 1) != 0) ? NodeType.UNARY_PRECEDENCE : NodeType.precedence(tokens.type(top >> 1));
+                    if (topPrecedence < precedence || (topPrecedence == precedence && right)) break;
+                    reduce();
+                }
+                pushOperator(pos, false);
+                expectOperand = true;
+                setNext();
+            } else if (type == TokenType.RIGHT_PAREN && closeParen(base)) {
+                setNext();
+            } else {
+                break;
             }
-            setNext();
-        } else {
-            Report.error("Parse error. Unexpected token.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
         }
-    
-        // Parse binary operators
-        while (NodeType.isBinOp(type)) {
-            Node binOpNode = new Node(this.lex.getTokenValue(), NodeType.BIN_OP);
-            binOpNode.addChild(exprNode);
-            setNext();
-            Node rhsNode = parseExpression();
-            binOpNode.addChild(rhsNode);
-            exprNode = binOpNode;
+
+        while (operatorCount > base) {
+            if (tokens.type(operatorStack[operatorCount - 1] >> 1) == TokenType.LEFT_PAREN) {
+                error("Parse error. Expected ')'.");
+                operatorCount--;
+            } else {
+                reduce();
+            }
         }
-    
+
+        int exprNode = (operandCount > operandBase) ? operandStack[--operandCount] : AstArena.NONE;
+        operandCount = operandBase;
         return exprNode;
     }
+
+    private static boolean isOperand(TokenType type) {
+        return switch (type) {
+            case IDENTIFIER, INTEGER_LITERAL, FLOATING_LITERAL, CHARACTER_LITERAL, STRING_LITERAL,
+                TRUE, FALSE, NULL -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Reduces the operators above the innermost open '(' and pops it.
+     * 
+     * @return false if no '(' is open in this expression.
+     */
+    private boolean closeParen(int base) {
+        int open = operatorCount - 1;
+        while (open >= base && tokens.type(operatorStack[open] >> 1) != TokenType.LEFT_PAREN) open--;
+        if (open < base) return false;
+
+        while (operatorCount - 1 > open) reduce();
+        operatorCount--;
+        return true;
+    }
+
+    /**
+     * Pops the top operator and its operands and pushes the new node.
+     */
+    private void reduce() {
+        int operator = operatorStack[--operatorCount];
+        int index = operator >> 1;
+        if ((operator & 1) != 0) {
+            int unOpNode = node(valueAt(index), NodeType.UN_OP, index);
+            addChild(unOpNode, popOperand());
+            pushOperand(unOpNode);
+        } else {
+            int rhsNode = popOperand();
+            int binOpNode = node(valueAt(index), NodeType.BIN_OP, index);
+            addChild(binOpNode, popOperand());
+            addChild(binOpNode, rhsNode);
+            pushOperand(binOpNode);
+        }
+    }
+
+    private void pushOperator(int index, boolean unary) {
+        if (operatorCount == operatorStack.length) {
+            operatorStack = Arrays.copyOf(operatorStack, operatorCount * 2);
+        }
+        operatorStack[operatorCount++] = (index << 1) | (unary ? 1 : 0);
+    }
+
+    private void pushOperand(int node) {
+        if (operandCount == operandStack.length) {
+            operandStack = Arrays.copyOf(operandStack, operandCount * 2);
+        }
+        operandStack[operandCount++] = node;
+    }
+
+    private int popOperand() {
+        if (operandCount == 0) return AstArena.NONE;
+        return operandStack[--operandCount];
+    }
     
-    private Node parseIf() {
-        Node ifNode = new Node("IF", NodeType.IF);
-        
+    /**
+     * method parseCondition.
+     * Parses the parenthesized condition of an IF or ELIF into
+     * a COND node whose only child is the expression tree. The
+     * current token is '{' afterwards if the condition is well
+     * formed.
+     * 
+     * @return Index of the COND node.
+     */
+    private int parseCondition() {
+        int conditionNode = node(Interner.COND, NodeType.COND, AstArena.NONE);
+
+        // Skip '(', the closing ')' is left for us by parseExpression.
         setNext();
-    
-        if (this.type != TokenType.LEFT_PAREN) {
-            Report.error("Parse error. Expected '(' after IF.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+        addChild(conditionNode, expression());
+
+        if (type != TokenType.RIGHT_PAREN) {
+            error("Parse error. Expected ')'.");
         } else {
-            TokenType lastType = null;
-            String cond = "";
-    
-            while (type != TokenType.LEFT_BRACE) {    
-                cond += this.lex.getTokenValue();
-                lastType = type;
-                setNext();
-            }
-    
-            if (lastType != TokenType.RIGHT_PAREN) {
-                Report.error("Parse Error. Expected ')', found '{'.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
-            }
-    
-            Node conditionNode = new Node(cond, NodeType.COND);
-    
-            ifNode.addChild(conditionNode);
-    
-            // Parse the body of the IF statement
             setNext();
-            while (type != TokenType.RIGHT_BRACE) {
-                if (type == TokenType.IF) {
-                    // Parse nested IF statements
-                    Node childNode = parseIf();
-                    ifNode.addChild(childNode);
-                } else if (type == TokenType.ELIF) {
-                    // Parse ELIF statements
-                    Node elifNode = parseElif();
-                    ifNode.addChild(elifNode);
-                } else if (type == TokenType.ELSE) {
-                    // Parse ELSE statements
-                    Node elseNode = parseElse();
-                    ifNode.addChild(elseNode);
-                } else {
-                    // Parse other statements
-                    Node stmtNode = parseStatement();
-                    ifNode.addChild(stmtNode);
-                }
-                setNext();
-            }
         }
-    
-        return ifNode;
+        if (type != TokenType.LEFT_BRACE) {
+            error("Parse error. Expected '{'.");
+        }
+
+        return conditionNode;
     }
-    
-    private Node parseElif() {
-        Node elifNode = new Node("ELIF", NodeType.ELIF);
-    
+
+    /**
+     * method parseIf.
+     * Parses an IF with every branch and statement nested in it.
+     * An IF or ELIF body holds statements and IF, ELIF and ELSE
+     * branches, an ELSE body statements and IF branches. Branches
+     * whose bodies are still open are kept on branchStack instead of
+     * the Java stack, so the nesting depth is limited only by memory.
+     * Ends on the closing '}' like every statement.
+     * 
+     * @return Index of the IF node.
+     */
+    private int parseIf() {
+        final int base = branchCount;
+        int ifNode = newBranch();
+        if (!openBranch(ifNode)) return ifNode;
+        pushBranch(ifNode);
         setNext();
-    
-        if (this.type != TokenType.LEFT_PAREN) {
-            Report.error("Parse error. Expected '(' after ELIF.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
-        } else {
-            TokenType lastType = null;
-            String cond = "";
-    
-            while (type != TokenType.LEFT_BRACE) {    
-                cond += this.lex.getTokenValue();
-                lastType = type;
+
+        while (true) {
+            if (atBlockEnd()) {
+                // The branch ends on its '}', the enclosing body moves past it.
+                branchCount--;
+                if (branchCount == base) return ifNode;
                 setNext();
+                continue;
             }
-    
-            if (lastType != TokenType.RIGHT_PAREN) {
-                Report.error("Parse Error. Expected ')', found '{'.", file, this.lex.getCurrentLine(), this.lex.getCurrentCpos());
+
+            int branchNode = branchStack[branchCount - 1];
+            if (type == TokenType.IF
+                || (type == TokenType.ELIF || type == TokenType.ELSE) && tree.getType(branchNode) != NodeType.ELSE) {
+                // Parse nested IF, ELIF and ELSE statements
+                int childNode = newBranch();
+                addChild(branchNode, childNode);
+                if (openBranch(childNode)) pushBranch(childNode);
+            } else {
+                // Parse other statements
+                int stmtNode = parseStatement();
+                addChild(branchNode, stmtNode);
             }
-    
-            Node conditionNode = new Node(cond, NodeType.COND);
-    
-            elifNode.addChild(conditionNode);
-    
-            // Parse the body of the ELIF statement
             setNext();
-            while (type != TokenType.RIGHT_BRACE) {
-                if (type == TokenType.IF) {
-                    // Parse nested IF statements
-                    Node childNode = parseIf();
-                    elifNode.addChild(childNode);
-                } else if (type == TokenType.ELIF) {
-                    // Parse nested ELIF statements
-                    Node childNode = parseElif();
-                    elifNode.addChild(childNode);
-                } else if (type == TokenType.ELSE) {
-                    // Parse ELSE statements
-                    Node elseNode = parseElse();
-                    elifNode.addChild(elseNode);
-                } else {
-                    // Parse other statements
-                    Node stmtNode = parseStatement();
-                    elifNode.addChild(stmtNode);
-                }
-                setNext();
-            }
         }
-    
-        return elifNode;
     }
-    
-    private Node parseElse() {
-        Node elseNode = new Node("ELSE", NodeType.ELSE);
-    
+
+    private int newBranch() {
+        return switch (type) {
+            case IF -> node(Interner.IF, NodeType.IF, AstArena.NONE);
+            case ELIF -> node(Interner.ELIF, NodeType.ELIF, AstArena.NONE);
+            default -> node(Interner.ELSE, NodeType.ELSE, AstArena.NONE);
+        };
+    }
+
+    /**
+     * method openBranch.
+     * Parses the head of an IF, ELIF or ELSE up to the '{' of its
+     * body. IF and ELIF get their COND child.
+     * 
+     * @param branchNode Index of the branch.
+     * @return false if the head is malformed, the branch is then
+     * skipped, see synchronize.
+     */
+    private boolean openBranch(int branchNode) {
         setNext();
-    
-        // Parse the body of the ELSE statement
-        while (type != TokenType.RIGHT_BRACE) {
-            if (type == TokenType.IF) {
-                // Parse nested IF statements
-                Node childNode = parseIf();
-                elseNode.addChild(childNode);
-            } else {
-                // Parse other statements
-                Node stmtNode = parseStatement();
-                elseNode.addChild(stmtNode);
+        if (tree.getType(branchNode) == NodeType.ELSE) {
+            if (type != TokenType.LEFT_BRACE) {
+                error("Parse error. Expected '{'.");
+                synchronize();
+                return false;
             }
-            setNext();
+            return true;
         }
-    
-        return elseNode;
-    }    
+
+        if (type != TokenType.LEFT_PAREN) {
+            error("Parse error. Expected '(' after " + tree.getValue(branchNode) + ".");
+            synchronize();
+            return false;
+        }
+        addChild(branchNode, parseCondition());
+        if (panic) {
+            synchronize();
+            return false;
+        }
+        return true;
+    }
+
+    private void pushBranch(int branchNode) {
+        if (branchCount == branchStack.length) {
+            branchStack = Arrays.copyOf(branchStack, branchCount * 2);
+        }
+        branchStack[branchCount++] = branchNode;
+    }
+
+    /**
+     * Receives the top level subtrees of parse(Listener).
+     */
+    interface Listener {
+        /**
+         * Called once per top level declaration or statement, in
+         * source order.
+         * 
+         * @param node Subtree of the declaration, null if it could not be parsed.
+         * @param token Index of its first token.
+         */
+        void accept(Node node, int token);
+    }
 }
\ No newline at end of file
@@ -23,69 +23,377 @@ SOFTWARE.
 */
 package rookc;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 
+/**
+ * Class Report.
+ * Collects the diagnostics of one compilation unit. Nothing is
+ * written until flush is called, so units compiled in parallel
+ * never interleave their output.
+ * 
+ * Diagnostics are positioned by byte offset. Lines and columns are
+ * resolved against the in-memory Source through its LineMap, the
+ * file is never read again.
+ */
 final class Report {
-    public static void error(String message) {
-        printReport(message, ReportType.ERROR);
+    private final String filePath;
+    private Source source;
+    private LineMap lines;
+    private final ArrayList<Diagnostic> diagnostics = new ArrayList<>();
+    private int errors, warnings, sequence;
+    /** Counts of the diagnostics already written by flush. */
+    private int flushedErrors, flushedWarnings;
+
+    /**
+     * Public constructor for Report class.
+     * Used when there is no source, for example when the file
+     * cannot be read.
+     * 
+     * @param filePath Path of the file the diagnostics refer to.
+     */
+    public Report(String filePath) {
+        this.filePath = filePath;
+        this.source = null;
+    }
+
+    /**
+     * Public constructor for Report class.
+     * 
+     * @param source Source the diagnostics refer to.
+     */
+    public Report(Source source) {
+        this.filePath = source.path();
+        this.source = source;
+    }
+
+    public void error(String message) {
+        errors++;
+        add(ReportType.ERROR, message, -1);
+    }
+
+    public void warning(String message) {
+        warnings++;
+        add(ReportType.WARNING, message, -1);
     }
 
-    public static void warning(String message) {
-        printReport(message, ReportType.WARNING);
+    public void error(String message, int offset) {
+        errors++;
+        add(ReportType.ERROR, message, offset);
     }
 
-    public static void error(String message, String filePath, int line, int column) {
-        printReport(message, ReportType.ERROR, filePath, line, column);
+    public void warning(String message, int offset) {
+        warnings++;
+        add(ReportType.WARNING, message, offset);
+    }
+
+    public void info(String message) {
+        add(ReportType.INFO, message, -1);
+    }
+
+    /**
+     * Sets the LineMap of the source, normally the one the Lexer
+     * built. Without one the source is indexed on the first flush.
+     * 
+     * @param lines Complete LineMap of the source.
+     */
+    public void setLineMap(LineMap lines) {
+        this.lines = lines;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Returns the number of errors held and flushed. After write or
+     * flush, duplicates are no longer counted.
+     * 
+     * @return int
+     */
+    public int getErrorCount() {
+        return errors;
+    }
+
+    /**
+     * Returns the number of warnings held and flushed, see
+     * getErrorCount.
+     * 
+     * @return int
+     */
+    public int getWarningCount() {
+        return warnings;
+    }
+
+    private void add(ReportType type, String message, int offset) {
+        diagnostics.add(new Diagnostic(type, message, offset, sequence++));
+    }
+
+    /**
+     * Moves the report to an edited source. Offsets are left as
+     * they are, see shift.
+     * 
+     * @param source Edited source.
+     * @param lines LineMap of the edited source.
+     */
+    void setSource(Source source, LineMap lines) {
+        this.source = source;
+        this.lines = lines;
+    }
+
+    /**
+     * Moves every positioned diagnostic by delta bytes.
+     * 
+     * @param delta Change of the offsets.
+     */
+    void shift(int delta) {
+        for (Diagnostic d : diagnostics) {
+            if (d.offset >= 0) d.offset += delta;
+        }
+    }
+
+    /**
+     * Moves the diagnostics at offsets in [from, to) into a new
+     * report on the same source.
+     * 
+     * @param from First offset.
+     * @param to End of the range.
+     * @return Report
+     */
+    Report take(int from, int to) {
+        Report taken = new Report(filePath);
+        taken.source = source;
+        taken.lines = lines;
+        for (Diagnostic d : diagnostics) {
+            if (d.offset >= from && d.offset < to) taken.add(d.type, d.message, d.offset);
+        }
+        if (diagnostics.removeIf(d -> d.offset >= from && d.offset < to)) {
+            count();
+            taken.count();
+        }
+        return taken;
     }
 
-    public static void warning(String message, String filePath, int line, int column) {
-        printReport(message, ReportType.WARNING, filePath, line, column);
+    /**
+     * Drops every diagnostic.
+     */
+    void clear() {
+        diagnostics.clear();
+        errors = warnings = flushedErrors = flushedWarnings = 0;
     }
 
-    public static void info(String message) {
-        printReport(message, ReportType.INFO);
+    /**
+     * Returns whether no diagnostic is held.
+     * 
+     * @return boolean
+     */
+    boolean isEmpty() {
+        return diagnostics.isEmpty();
     }
 
-    private static void printReport(String message, ReportType type) {
-        System.out.println(type.toString() + ": " + message);
+    /**
+     * Drops every diagnostic with the given message at an offset.
+     * 
+     * @param message Message of the diagnostic.
+     * @param offset Offset of the diagnostic.
+     */
+    void remove(String message, int offset) {
+        if (diagnostics.removeIf(d -> d.offset == offset && d.message.equals(message))) {
+            count();
+        }
     }
 
-    private static void printReport(String message, ReportType type, String filePath, int line, int column) {
-        try {
-            printFileContent(filePath, line, column);
-        } catch (IOException e) {
-            System.out.println("Error: " + e.getMessage());
+    /**
+     * Moves the diagnostics of another report into this one.
+     * 
+     * @param other Report to drain.
+     */
+    void addAll(Report other) {
+        for (Diagnostic d : other.diagnostics) {
+            add(d.type, d.message, d.offset);
+            if (d.type == ReportType.ERROR) errors++;
+            else if (d.type == ReportType.WARNING) warnings++;
         }
+        other.diagnostics.clear();
+        other.errors = other.warnings = 0;
+    }
 
-        System.out.println(type.toString() + ": " + message);
+    /**
+     * Adds copies of the diagnostics of another report, which
+     * keeps them, moved by delta bytes.
+     * 
+     * @param other Report to copy.
+     * @param delta Change of the offsets.
+     */
+    void include(Report other, int delta) {
+        for (Diagnostic d : other.diagnostics) add(d.type, d.message, (d.offset >= 0) ? d.offset + delta : -1);
+        errors += other.errors;
+        warnings += other.warnings;
     }
 
-    private static void printFileContent(String filePath, int line, int column) throws IOException {
-        BufferedReader reader = new BufferedReader(new FileReader(filePath));
-        String lineContent;
-        int currentLine = 1;
+    /**
+     * Writes every diagnostic collected so far, see ParseCache.
+     * 
+     * @param out Output to write to.
+     * @throws IOException
+     */
+    void save(DataOutput out) throws IOException {
+        out.writeInt(diagnostics.size());
+        for (Diagnostic d : diagnostics) {
+            byte[] message = d.message.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(d.type.ordinal());
+            out.writeInt(d.offset);
+            out.writeInt(message.length);
+            out.write(message);
+        }
+    }
 
-        while ((lineContent = reader.readLine()) != null) {
-            if (currentLine == line) {
-                System.out.println(lineContent);
-                highlightColumn(column);
-                break;
+    /**
+     * Adds the diagnostics written by save.
+     * 
+     * @param in Buffer positioned at the diagnostics.
+     * @throws IllegalArgumentException if a count, type or length
+     * does not fit the buffer.
+     */
+    void restore(ByteBuffer in) {
+        ReportType[] types = ReportType.values();
+        int count = in.getInt();
+        // Every diagnostic takes at least 9 bytes.
+        if (count < 0 || count > in.remaining() / 9) throw new IllegalArgumentException("Malformed diagnostics");
+        for (int i = 0; i < count; i++) {
+            int kind = in.get();
+            int offset = in.getInt();
+            int length = in.getInt();
+            if (kind < 0 || kind >= types.length || length < 0 || length > in.remaining()) {
+                throw new IllegalArgumentException("Malformed diagnostics");
             }
+            ReportType type = types[kind];
+            byte[] message = new byte[length];
+            in.get(message);
+            if (type == ReportType.ERROR) errors++;
+            else if (type == ReportType.WARNING) warnings++;
+            add(type, new String(message, StandardCharsets.UTF_8), offset);
+        }
+    }
 
-            currentLine++;
+    private void count() {
+        errors = flushedErrors;
+        warnings = flushedWarnings;
+        for (Diagnostic d : diagnostics) {
+            if (d.type == ReportType.ERROR) errors++;
+            else if (d.type == ReportType.WARNING) warnings++;
         }
+    }
+
+    /**
+     * Writes every diagnostic collected so far, ordered by position
+     * and without duplicates, and clears them. The writer is not
+     * flushed.
+     * 
+     * The counts are cumulative, they keep the diagnostics written
+     * here so a driver can read them after the flush.
+     * 
+     * @param out Writer to write to.
+     * @throws IOException
+     */
+    public void flush(Writer out) throws IOException {
+        write(out);
+        diagnostics.clear();
+        flushedErrors = errors;
+        flushedWarnings = warnings;
+    }
+
+    /**
+     * Writes every diagnostic collected so far like flush, but keeps
+     * them. Used when the same unit is reported again after edits.
+     * Duplicates are dropped first, so the counts are those of the
+     * diagnostics written.
+     * 
+     * @param out Writer to write to.
+     * @throws IOException
+     */
+    public void write(Writer out) throws IOException {
+        diagnostics.sort(Comparator.comparingInt((Diagnostic d) -> d.offset).thenComparingInt(d -> d.sequence));
+        removeDuplicates();
 
-        reader.close();
+        StringBuilder sb = new StringBuilder();
+        for (Diagnostic d : diagnostics) printReport(sb, d);
+        out.append(sb);
     }
 
-    private static void highlightColumn(int column) {
-        for (int i = 0; i < column - 1; i++) {
-            System.out.print(" ");
+    /**
+     * Drops every diagnostic equal to an earlier one of the list,
+     * see Diagnostic.equals.
+     */
+    private void removeDuplicates() {
+        HashSet<Diagnostic> seen = new HashSet<>();
+        if (diagnostics.removeIf(d -> !seen.add(d))) count();
+    }
+
+    private void printReport(StringBuilder sb, Diagnostic d) {
+        sb.append(d.type.toString()).append(": ");
+        if (d.offset >= 0 && source != null) {
+            if (lines == null) lines = LineMap.of(source);
+            int line = lines.line(d.offset);
+            sb.append(filePath).append(':').append(line).append(':').append(lines.column(d.offset)).append(": ");
+            sb.append(d.message).append('\n');
+            printFileContent(sb, line, d.offset);
+        } else {
+            if (filePath != null) sb.append(filePath).append(": ");
+            sb.append(d.message).append('\n');
         }
+    }
 
-        System.out.println("^");
+    private void printFileContent(StringBuilder sb, int line, int offset) {
+        int start = lines.lineStart(line);
+        int end = lines.lineEnd(line, source);
+
+        sb.append(source.text(start, end - start)).append('\n');
+        highlightColumn(sb, start, Math.min(offset, end));
+    }
+
+    private void highlightColumn(StringBuilder sb, int lineStart, int offset) {
+        // Keep tabs so the caret lines up with the printed line.
+        for (int i = lineStart; i < offset; i++) {
+            sb.append(source.bytes().get(i) == '\t' ? '\t' : ' ');
+        }
+
+        sb.append("^\n");
+    }
+
+    private static final class Diagnostic {
+        final ReportType type;
+        final String message;
+        final int sequence;
+        int offset;
+
+        Diagnostic(ReportType type, String message, int offset, int sequence) {
+            this.type = type;
+            this.message = message;
+            this.offset = offset;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Diagnostics are equal when they have the same offset, type
+         * and message. The sequence only orders them.
+         */
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Diagnostic d && d.offset == offset && d.type == type
+                && d.message.equals(message);
+        }
+
+        @Override
+        public int hashCode() {
+            return (offset * 31 + type.hashCode()) * 31 + message.hashCode();
+        }
     }
 
     public enum ReportType {
@@ -0,0 +1,334 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+import rookc.parser.*;
+
+/**
+ * Class Scheduler.
+ * Builds a set of files in import order with as much parallelism
+ * as the import graph allows.
+ * 
+ * The imports of every file are scanned first, see ImportScanner,
+ * and resolved to files by package name. Cycles are reported and
+ * the import closing each cycle is dropped, so what remains is a
+ * DAG. Then every file is lexed and parsed at once on a
+ * work-stealing pool, from the Source the scan loaded. The semantic stage of a file is started by
+ * whichever task finishes last among its own parse and the
+ * semantic stages of its imports, so a file never waits for
+ * anything it does not import and no thread blocks on another.
+ */
+final class Scheduler {
+    private static final int SCAN = 0, PARSE = 1, SEMANTIC = 2;
+    private static final String[] STAGES = { "scan", "parse", "semantic" };
+    /** Search states of breakCycles. */
+    private static final byte NEW = 0, ACTIVE = 1, DONE = 2;
+
+    private final List<String> files;
+    /** Parse stage of a file, given its path and its Source or null if it could not be read. */
+    private final BiFunction<String, Source, CompilationUnit> parse;
+    private final ForkJoinPool pool;
+    /** Sources loaded by the scan, handed to the parse and dropped after it. */
+    private final Source[] sources;
+    private final CompilationUnit[] units;
+    /** Imports and importers of every file, as file indexes. */
+    private int[][] imports, importers;
+    /** Import problems found before the file is parsed. */
+    private final List<List<String>> problems;
+    /** Parse and imports left before the semantic stage can start. */
+    private AtomicIntegerArray pending;
+    private final CountDownLatch done;
+    private final LongAdder[] nanos = { new LongAdder(), new LongAdder(), new LongAdder() };
+
+    private Scheduler(List<String> files, BiFunction<String, Source, CompilationUnit> parse, ForkJoinPool pool) {
+        this.files = files;
+        this.parse = parse;
+        this.pool = pool;
+        this.sources = new Source[files.size()];
+        this.units = new CompilationUnit[files.size()];
+        this.problems = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) problems.add(new ArrayList<>());
+        this.done = new CountDownLatch(files.size());
+    }
+
+    /**
+     * Builds the files and prints their diagnostics in input order.
+     * 
+     * @param files Files to build.
+     * @param packages Package name of every file.
+     * @param threads Number of worker threads.
+     * @param cache Parse cache, or null.
+     * @param out Writer for the diagnostics.
+     * @param timing Stream for the stage times, or null.
+     * @return Number of errors.
+     * @throws IOException
+     */
+    static int build(List<String> files, Map<String, String> packages, int threads, ParseCache cache,
+                     Writer out, PrintStream timing) throws IOException {
+        return build(files, packages, threads, out, timing, (path, source) ->
+                (source != null) ? CompilationUnit.compile(source, cache) : CompilationUnit.compile(path, cache));
+    }
+
+    /**
+     * Builds the files with the given parse stage.
+     * 
+     * @param files Files to build.
+     * @param packages Package name of every file.
+     * @param threads Number of worker threads.
+     * @param out Writer for the diagnostics.
+     * @param timing Stream for the stage times, or null.
+     * @param parse Parse stage, called with the path of a file and its Source or null.
+     * @return Number of errors.
+     * @throws IOException
+     */
+    static int build(List<String> files, Map<String, String> packages, int threads, Writer out, PrintStream timing,
+                     BiFunction<String, Source, CompilationUnit> parse) throws IOException {
+        long wall = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Scheduler scheduler = new Scheduler(files, parse, pool);
+        try {
+            scheduler.resolve(packages);
+            scheduler.breakCycles();
+            scheduler.linkImporters();
+            scheduler.start();
+            scheduler.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } finally {
+            pool.shutdown();
+        }
+
+        int errors = 0;
+        for (CompilationUnit unit : scheduler.units) {
+            unit.getReport().flush(out);
+            errors += unit.getReport().getErrorCount();
+        }
+        if (timing != null) {
+            StringBuilder sb = new StringBuilder("rookc: ").append(files.size()).append(" files");
+            for (int stage = SCAN; stage <= SEMANTIC; stage++) {
+                sb.append(", ").append(STAGES[stage]).append(' ').append(millis(scheduler.nanos[stage].sum()));
+            }
+            sb.append(" (summed over files), wall ").append(millis(System.nanoTime() - wall));
+            timing.println(sb);
+        }
+        return errors;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+
+    /**
+     * Scans the imports of every file in parallel and maps them
+     * to file indexes.
+     */
+    private void resolve(Map<String, String> packages) {
+        List<ForkJoinTask<AstArena>> scans = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            final int file = i;
+            scans.add(pool.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    sources[file] = Source.read(files.get(file));
+                    // Diagnostics come again from the full parse.
+                    return ImportScanner.scan(sources[file], new Report(files.get(file)));
+                } catch (IOException e) {
+                    // The parse reads it again and reports why it cannot.
+                    return null;
+                } finally {
+                    nanos[SCAN].add(System.nanoTime() - start);
+                }
+            }));
+        }
+
+        HashMap<String, Integer> byPackage = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            String name = packages.get(files.get(i));
+            if (name != null) byPackage.putIfAbsent(name, i);
+        }
+
+        imports = new int[files.size()][];
+        for (int i = 0; i < files.size(); i++) {
+            AstArena scanned = scans.get(i).join();
+            int[] edges = new int[(scanned != null) ? scanned.length(scanned.getRoot()) : 0];
+            int count = 0;
+            for (int node = (scanned != null) ? scanned.getFirstChild(scanned.getRoot()) : AstArena.NONE;
+                 node != AstArena.NONE; node = scanned.getNextSibling(node)) {
+                int pkg = scanned.getFirstChild(node);
+                if (pkg == AstArena.NONE) continue;
+                String name = scanned.getValue(pkg);
+                Integer target = byPackage.get(name);
+                if (target == null) {
+                    problems.get(i).add("Cannot find package " + name + ".");
+                } else if (indexOf(edges, count, target) < 0) {
+                    edges[count++] = target;
+                }
+            }
+            imports[i] = Arrays.copyOf(edges, count);
+        }
+    }
+
+    private static int indexOf(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds cycles with an iterative depth first search. Every
+     * import that leads back to a file still on the search path
+     * closes a cycle; it is reported on the importing file and
+     * dropped.
+     */
+    private void breakCycles() {
+        int n = files.size();
+        byte[] state = new byte[n];
+        int[] path = new int[n], next = new int[n];
+        boolean dropped = false;
+
+        for (int root = 0; root < n; root++) {
+            if (state[root] != NEW) continue;
+            int depth = 0;
+            path[0] = root;
+            next[0] = 0;
+            state[root] = ACTIVE;
+            while (depth >= 0) {
+                int file = path[depth];
+                if (next[depth] == imports[file].length) {
+                    state[file] = DONE;
+                    depth--;
+                    continue;
+                }
+                int k = next[depth]++;
+                int target = imports[file][k];
+                if (state[target] == NEW) {
+                    state[target] = ACTIVE;
+                    path[++depth] = target;
+                    next[depth] = 0;
+                } else if (state[target] == ACTIVE) {
+                    StringBuilder cycle = new StringBuilder("Import cycle: ");
+                    int from = depth;
+                    while (path[from] != target) from--;
+                    for (int d = from; d <= depth; d++) cycle.append(files.get(path[d])).append(" -> ");
+                    problems.get(file).add(cycle.append(files.get(target)).append('.').toString());
+                    imports[file][k] = -1;
+                    dropped = true;
+                }
+            }
+        }
+        if (!dropped) return;
+        for (int i = 0; i < n; i++) {
+            imports[i] = Arrays.stream(imports[i]).filter(target -> target >= 0).toArray();
+        }
+    }
+
+    /**
+     * Inverts the import edges.
+     */
+    private void linkImporters() {
+        int n = files.size();
+        int[] count = new int[n];
+        for (int[] edges : imports) {
+            for (int target : edges) count[target]++;
+        }
+        importers = new int[n][];
+        for (int i = 0; i < n; i++) importers[i] = new int[count[i]];
+        Arrays.fill(count, 0);
+        for (int i = 0; i < n; i++) {
+            for (int target : imports[i]) importers[target][count[target]++] = i;
+        }
+    }
+
+    /**
+     * Submits the parse of every file. Semantic stages are
+     * submitted as they become ready, see arrive.
+     */
+    private void start() {
+        int n = files.size();
+        pending = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) pending.set(i, imports[i].length + 1);
+        for (int i = 0; i < n; i++) {
+            final int file = i;
+            pool.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    units[file] = parse.apply(files.get(file), sources[file]);
+                } catch (RuntimeException | Error e) {
+                    // The file still arrives, or its importers and the build would wait for it forever.
+                    units[file] = CompilationUnit.failed(files.get(file), e);
+                } finally {
+                    sources[file] = null;
+                    nanos[PARSE].add(System.nanoTime() - start);
+                    arrive(file);
+                }
+            });
+        }
+    }
+
+    /**
+     * Counts down the parse or an import of a file and starts its
+     * semantic stage when nothing is left. The atomic update also
+     * publishes the unit and the symbol tables of its imports to
+     * the thread that runs the stage.
+     */
+    private void arrive(int file) {
+        if (pending.decrementAndGet(file) == 0) {
+            pool.execute(() -> analyze(file));
+        }
+    }
+
+    private void analyze(int file) {
+        long start = System.nanoTime();
+        CompilationUnit unit = units[file];
+        try {
+            for (String problem : problems.get(file)) unit.getReport().error(problem);
+            List<CompilationUnit> imported = new ArrayList<>(imports[file].length);
+            for (int target : imports[file]) imported.add(units[target]);
+            unit.declare(imported);
+        } catch (RuntimeException e) {
+            unit.getReport().error("Internal compiler error: " + e);
+        } finally {
+            nanos[SEMANTIC].add(System.nanoTime() - start);
+            for (int importer : importers[file]) arrive(importer);
+            done.countDown();
+        }
+    }
+}
\ No newline at end of file
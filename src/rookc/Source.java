@@ -0,0 +1,136 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class Source.
+ * The bytes of a Rook source file together with its path.
+ * Files are loaded in one pass, large files are memory mapped
+ * and small ones are read with a single bulk read. The Lexer
+ * scans the ASCII / UTF-8 bytes directly, text is only decoded
+ * for the spans that are asked for.
+ * 
+ * @see Lexer.java
+ */
+final class Source {
+    /** Files at least this large are mapped instead of read. */
+    private static final long MAP_THRESHOLD = 1 << 16;
+
+    private final String path;
+    private final ByteBuffer bytes;
+
+    private Source(String path, ByteBuffer bytes) {
+        this.path = path;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Loads a file.
+     * 
+     * @param path Name along with the relative / absolute path of the file.
+     * @return Source
+     * @throws IOException
+     */
+    static Source read(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + path);
+            }
+            if (size >= MAP_THRESHOLD) {
+                return new Source(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) break;
+            }
+            buffer.flip();
+            return new Source(path, buffer);
+        }
+    }
+
+    /**
+     * Wraps text that is already in memory.
+     * 
+     * @param path Name reported in diagnostics.
+     * @param text Contents of the source.
+     * @return Source
+     */
+    static Source of(String path, String text) {
+        return new Source(path, ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Returns a copy of this source with removed bytes at offset
+     * replaced by inserted.
+     * 
+     * @param offset Offset of the edit.
+     * @param removed Number of bytes to remove.
+     * @param inserted Bytes to insert.
+     * @return Source
+     */
+    Source edit(int offset, int removed, byte[] inserted) {
+        int length = length();
+        byte[] edited = new byte[length - removed + inserted.length];
+        bytes.get(0, edited, 0, offset);
+        System.arraycopy(inserted, 0, edited, offset, inserted.length);
+        bytes.get(offset + removed, edited, offset + inserted.length, length - offset - removed);
+        return new Source(path, ByteBuffer.wrap(edited));
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public ByteBuffer bytes() {
+        return bytes;
+    }
+
+    public int length() {
+        return bytes.limit();
+    }
+
+    /**
+     * Decodes the span [start, start + length) as UTF-8.
+     * 
+     * @param start Byte offset of the span.
+     * @param length Length of the span in bytes.
+     * @return String
+     */
+    public String text(int start, int length) {
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        byte[] dst = new byte[length];
+        bytes.get(start, dst);
+        return new String(dst, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class Swar.
+ * Byte classification eight bytes at a time ("SIMD within a
+ * register") for the runs the Lexer skips in bulk. A word is read
+ * little endian, so byte i of the word is bits 8i to 8i + 7 and
+ * the first byte that ends a run is found with one trailing zero
+ * count. Masks have the high bit of every matching byte set.
+ * 
+ * The tests are exact per byte, no carry crosses into the next
+ * byte. Bytes from 0x80 up never match a character class.
+ * 
+ * @see Lexer.java
+ */
+final class Swar {
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+
+    private Swar() {
+    }
+
+    /**
+     * Reads the eight bytes at an offset, which must be at least
+     * eight bytes before the end of the buffer.
+     * 
+     * @return long
+     */
+    static long word(ByteBuffer src, int at) {
+        return (long) LONG.get(src, at);
+    }
+
+    /**
+     * Returns the mask of the bytes equal to b.
+     * 
+     * @return long
+     */
+    static long equal(long word, int b) {
+        long x = word ^ (ONES * b);
+        return ~(((x & LOWS) + LOWS) | x) & HIGHS;
+    }
+
+    /**
+     * Returns the mask of the ASCII bytes in [lo, hi], for lo from 1
+     * and hi up to 0x7F.
+     * 
+     * @return long
+     */
+    static long between(long word, int lo, int hi) {
+        long low = word & LOWS;
+        return (low + ONES * (0x80 - lo)) & ~(low + ONES * (0x7F - hi)) & ~word & HIGHS;
+    }
+
+    /**
+     * Returns the mask of the spaces, tabs, carriage returns and
+     * line feeds.
+     * 
+     * @return long
+     */
+    static long whitespace(long word) {
+        return equal(word, ' ') | equal(word, '\t') | equal(word, '\r') | equal(word, '\n');
+    }
+
+    /**
+     * Returns the mask of the letters, digits and underscores.
+     * 
+     * @return long
+     */
+    static long identifier(long word) {
+        // Setting bit 5 folds 'A'-'Z' onto 'a'-'z' and moves no other byte into that range.
+        return between(word | ONES * 0x20, 'a', 'z') | between(word, '0', '9') | equal(word, '_');
+    }
+
+    /**
+     * Returns the number of bytes before the first byte outside
+     * a mask, 8 if the mask holds all of them.
+     * 
+     * @return int
+     */
+    static int run(long mask) {
+        return Long.numberOfTrailingZeros(~mask & HIGHS) >>> 3;
+    }
+
+    /**
+     * Skips letters, digits and underscores.
+     * 
+     * @return Offset of the first other byte, or of the last
+     * seven bytes before end, which are left to the caller.
+     */
+    static int skipIdentifier(ByteBuffer src, int pos, int end) {
+        while (end - pos >= Long.BYTES) {
+            int run = run(identifier(word(src, pos)));
+            pos += run;
+            if (run < Long.BYTES) break;
+        }
+        return pos;
+    }
+
+    /**
+     * Skips decimal digits.
+     * 
+     * @return Offset of the first other byte, or of the last
+     * seven bytes before end, which are left to the caller.
+     */
+    static int skipDigits(ByteBuffer src, int pos, int end) {
+        while (end - pos >= Long.BYTES) {
+            int run = run(between(word(src, pos), '0', '9'));
+            pos += run;
+            if (run < Long.BYTES) break;
+        }
+        return pos;
+    }
+
+    /**
+     * Skips the body of a string literal, every byte up to a
+     * quote, a backslash or a line feed. Line feeds are left to
+     * the caller, which counts them.
+     * 
+     * @return Offset of the first of those bytes, or of the last
+     * seven bytes before end, which are left to the caller.
+     */
+    static int skipString(ByteBuffer src, int pos, int end) {
+        while (end - pos >= Long.BYTES) {
+            long word = word(src, pos);
+            long stop = equal(word, '"') | equal(word, '\\') | equal(word, '\n');
+            if (stop != 0) return pos + (Long.numberOfTrailingZeros(stop) >>> 3);
+            pos += Long.BYTES;
+        }
+        return pos;
+    }
+
+    /**
+     * Skips every byte up to a line feed.
+     * 
+     * @return Offset of the line feed, or of the last seven
+     * bytes before end, which are left to the caller.
+     */
+    static int skipLine(ByteBuffer src, int pos, int end) {
+        while (end - pos >= Long.BYTES) {
+            long newline = equal(word(src, pos), '\n');
+            if (newline != 0) return pos + (Long.numberOfTrailingZeros(newline) >>> 3);
+            pos += Long.BYTES;
+        }
+        return pos;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,427 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class TokenBuffer.
+ * Holds the whole token stream of a file as parallel primitive
+ * arrays, so the parser can index any token directly and look
+ * ahead or back without lexing again. A token costs 17 bytes
+ * and no objects.
+ * 
+ * The last token of every buffer is TokenType.EOF, indexes past
+ * the end read as that EOF token.
+ * 
+ * A lazy buffer holds its Lexer and lexes only up to the highest
+ * index read so far, see lazy.
+ * 
+ * String and character literals are kept as spans, their values
+ * are decoded only when asked for, see literal.
+ * 
+ * @see Lexer.java
+ */
+final class TokenBuffer {
+    static final String UNCLOSED_PARENS = "Unclosed parantheses detected.";
+    static final String UNCLOSED_BRACES = "Unclosed braces detected.";
+
+    private static final TokenType[] TYPES = TokenType.values();
+    /** High bit of the type of a literal that holds a backslash escape. */
+    private static final int ESCAPED = 0x80;
+
+    private Source src;
+    private LineMap lineMap;
+    private byte[] types;
+    private int[] starts, lengths, lines, ids;
+    private int size;
+    /** Opened minus closed parentheses and braces over the whole buffer. */
+    private int parens, braces;
+    /** Lexer of a lazy buffer, null once EOF is lexed. */
+    private Lexer lex;
+    /** Decoded bytes of the last escaped literal, see literal. */
+    private byte[] scratch = new byte[0];
+
+    /**
+     * Creates an empty buffer, see add.
+     */
+    TokenBuffer(Source src, LineMap lineMap, int capacity) {
+        this.src = src;
+        this.lineMap = lineMap;
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+        this.ids = new int[capacity];
+    }
+
+    /**
+     * Lexes the whole source of the given Lexer into a new buffer.
+     * 
+     * @param lex Lexer positioned at the start of its source.
+     * @return TokenBuffer
+     */
+    static TokenBuffer of(Lexer lex) {
+        // Rook sources average a little over one token every five bytes.
+        TokenBuffer buffer = new TokenBuffer(lex.source, lex.getLineMap(), Math.max(16, lex.source.length() / 5));
+        buffer.lex = lex;
+        buffer.fill(Integer.MAX_VALUE);
+        return buffer;
+    }
+
+    /**
+     * Creates a buffer that lexes on demand. A token is lexed the
+     * first time it or a token after it is read, so a parser that
+     * stops early never lexes the rest of the source. The line map
+     * and the diagnostics of the Lexer cover only what was lexed.
+     * The arrays start small and grow with what is lexed.
+     * 
+     * @param lex Lexer positioned at the start of its source.
+     * @return TokenBuffer
+     */
+    static TokenBuffer lazy(Lexer lex) {
+        TokenBuffer buffer = new TokenBuffer(lex.source, lex.getLineMap(), 64);
+        buffer.lex = lex;
+        return buffer;
+    }
+
+    /**
+     * Lexes the tokens that start before an offset into a new buffer,
+     * for ParallelParser. The Lexer and end must both lie between
+     * tokens, the Lexer stops at end, see Lexer.setEnd. The buffer
+     * holds the bracket counts of its range and ends with EOF only
+     * if the source ends at or before end, see concat.
+     * 
+     * @param lex Lexer positioned at the start of the range.
+     * @param end Offset the range ends at.
+     * @return TokenBuffer
+     */
+    static TokenBuffer range(Lexer lex, int end) {
+        boolean last = end >= lex.source.length();
+        lex.setEnd(end);
+        int capacity = Math.max(16, (Math.min(end, lex.source.length()) - lex.getCurrentCpos()) / 5);
+        TokenBuffer buffer = new TokenBuffer(lex.source, null, capacity);
+        for (TokenType type = lex.getNextTokenType(); type != TokenType.EOF; type = lex.getNextTokenType()) {
+            buffer.add(lex, type);
+        }
+        if (last) buffer.add(lex, TokenType.EOF);
+        buffer.parens = lex.P;
+        buffer.braces = lex.B;
+        return buffer;
+    }
+
+    /**
+     * Joins consecutive ranges of a source into one buffer, the last
+     * range must end with EOF. Bracket counts are summed, see
+     * checkBalance.
+     * 
+     * @param lineMap LineMap of the whole source.
+     * @param parts Buffers made by range, in source order.
+     * @return TokenBuffer
+     */
+    static TokenBuffer concat(LineMap lineMap, TokenBuffer... parts) {
+        int size = 0;
+        for (TokenBuffer part : parts) size += part.size;
+        TokenBuffer buffer = new TokenBuffer(parts[0].src, lineMap, size);
+        for (TokenBuffer part : parts) {
+            System.arraycopy(part.types, 0, buffer.types, buffer.size, part.size);
+            System.arraycopy(part.starts, 0, buffer.starts, buffer.size, part.size);
+            System.arraycopy(part.lengths, 0, buffer.lengths, buffer.size, part.size);
+            System.arraycopy(part.lines, 0, buffer.lines, buffer.size, part.size);
+            System.arraycopy(part.ids, 0, buffer.ids, buffer.size, part.size);
+            buffer.size += part.size;
+            buffer.parens += part.parens;
+            buffer.braces += part.braces;
+        }
+        return buffer;
+    }
+
+    private void fill(int index) {
+        while (size <= index) {
+            TokenType type = lex.getNextTokenType();
+            add(lex, type);
+            if (type == TokenType.EOF) {
+                parens = lex.P;
+                braces = lex.B;
+                checkBalance(lex.report);
+                lex = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reports unbalanced parentheses and braces at the end of the source.
+     * 
+     * @param report Report of the compilation unit.
+     */
+    void checkBalance(Report report) {
+        if (parens != 0) report.error(UNCLOSED_PARENS, src.length());
+        if (braces != 0) report.error(UNCLOSED_BRACES, src.length());
+    }
+
+    /**
+     * Moves the buffer to an edited source. The tokens [from, to)
+     * are replaced by every token of relexed and the tokens after
+     * them are moved by delta bytes and lineDelta lines. Nothing is
+     * lexed again and the arrays are only reallocated when they
+     * are full.
+     * 
+     * @param source Edited source.
+     * @param lineMap LineMap of the edited source.
+     * @param from First token replaced.
+     * @param relexed Tokens lexed from the edited source.
+     * @param to First token kept after the replaced ones.
+     * @param delta Change of the source length.
+     * @param lineDelta Change of the line count.
+     */
+    void splice(Source source, LineMap lineMap, int from, TokenBuffer relexed, int to, int delta, int lineDelta) {
+        parens += relexed.count(TokenType.LEFT_PAREN, TokenType.RIGHT_PAREN, 0, relexed.size)
+            - count(TokenType.LEFT_PAREN, TokenType.RIGHT_PAREN, from, to);
+        braces += relexed.count(TokenType.LEFT_BRACE, TokenType.RIGHT_BRACE, 0, relexed.size)
+            - count(TokenType.LEFT_BRACE, TokenType.RIGHT_BRACE, from, to);
+
+        int kept = size - to;
+        int at = from + relexed.size;
+        if (at + kept > types.length) {
+            int capacity = Math.max(at + kept, size + (size >> 1));
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+
+        System.arraycopy(types, to, types, at, kept);
+        System.arraycopy(starts, to, starts, at, kept);
+        System.arraycopy(lengths, to, lengths, at, kept);
+        System.arraycopy(lines, to, lines, at, kept);
+        System.arraycopy(ids, to, ids, at, kept);
+
+        System.arraycopy(relexed.types, 0, types, from, relexed.size);
+        System.arraycopy(relexed.starts, 0, starts, from, relexed.size);
+        System.arraycopy(relexed.lengths, 0, lengths, from, relexed.size);
+        System.arraycopy(relexed.lines, 0, lines, from, relexed.size);
+        System.arraycopy(relexed.ids, 0, ids, from, relexed.size);
+
+        size = at + kept;
+        if (delta != 0) {
+            for (int i = at; i < size; i++) starts[i] += delta;
+        }
+        if (lineDelta != 0) {
+            for (int i = at; i < size; i++) lines[i] += lineDelta;
+        }
+        this.src = source;
+        this.lineMap = lineMap;
+    }
+
+    private int count(TokenType open, TokenType close, int from, int to) {
+        int depth = 0;
+        for (int i = from; i < to; i++) {
+            if (types[i] == open.ordinal()) depth++;
+            else if (types[i] == close.ordinal()) depth--;
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the index of the first token that ends at or after
+     * an offset, the trailing EOF if there is none.
+     * 
+     * @param offset Byte offset.
+     * @return int
+     */
+    int find(int offset) {
+        int lo = 0, hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] + lengths[mid] >= offset) hi = mid; else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /**
+     * Appends a token.
+     */
+    void add(TokenType type, int start, int length, int line, int id) {
+        if (size == types.length) {
+            int capacity = size + (size >> 1);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        ids[size] = id;
+        size++;
+    }
+
+    /**
+     * Appends the token the Lexer just returned.
+     */
+    void add(Lexer lex, TokenType type) {
+        add(type, lex.getTokenStart(), lex.getTokenLength(), lex.getTokenLine(), lex.getTokenId());
+        if (lex.hasEscape()) types[size - 1] |= ESCAPED;
+    }
+
+    /**
+     * Lexes up to index if needed. Read the arrays only after
+     * this, filling may replace them.
+     */
+    private int clamp(int index) {
+        if (index >= size && lex != null) fill(index);
+        return (index < size) ? index : size - 1;
+    }
+
+    /**
+     * Returns the number of tokens, including the trailing EOF.
+     * For a lazy buffer, the number of tokens lexed so far.
+     * 
+     * @return int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the source the tokens point into.
+     * 
+     * @return Source
+     */
+    public Source source() {
+        return src;
+    }
+
+    /**
+     * Returns the line start offsets of the source, complete
+     * once the buffer is built.
+     * 
+     * @return LineMap
+     */
+    public LineMap lineMap() {
+        return lineMap;
+    }
+
+    public TokenType type(int index) {
+        int i = clamp(index);
+        return TYPES[types[i] & 0x7F];
+    }
+
+    public int start(int index) {
+        int i = clamp(index);
+        return starts[i];
+    }
+
+    public int length(int index) {
+        int i = clamp(index);
+        return lengths[i];
+    }
+
+    public int line(int index) {
+        int i = clamp(index);
+        return lines[i];
+    }
+
+    /**
+     * Returns the Interner id of an identifier or literal
+     * token, -1 for string literals and every other token.
+     * 
+     * @param index Index of the token.
+     * @return int
+     */
+    public int id(int index) {
+        int i = clamp(index);
+        return ids[i];
+    }
+
+    /**
+     * Returns the text of a token. A new String is created
+     * on every call.
+     * 
+     * @param index Index of the token.
+     * @return String
+     */
+    public String text(int index) {
+        int i = clamp(index);
+        return src.text(starts[i], lengths[i]);
+    }
+
+    /**
+     * Returns the value of a string or character literal, the text
+     * between its quotes with the escapes decoded. A literal without
+     * escapes is decoded straight from the source, one with escapes
+     * is decoded in one pass into a scratch array the buffer keeps,
+     * so the String is the only allocation. An unclosed literal runs
+     * to the end of the token.
+     * 
+     * Escapes: \n, \t, \r and \0, a backslash before any other byte
+     * stands for that byte.
+     * 
+     * @param index Index of a STRING_LITERAL or CHARACTER_LITERAL token.
+     * @return String
+     */
+    public String literal(int index) {
+        int i = clamp(index);
+        ByteBuffer bytes = src.bytes();
+        int quote = bytes.get(starts[i]);
+        int from = starts[i] + 1, to = starts[i] + lengths[i];
+        if ((types[i] & ESCAPED) == 0) {
+            if (to > from && bytes.get(to - 1) == quote) to--;
+            return src.text(from, to - from);
+        }
+        if (scratch.length < to - from) scratch = new byte[Math.max(to - from, scratch.length * 2)];
+        return new String(scratch, 0, unescape(bytes, from, to, quote, scratch), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the body of a literal up to its closing quote into dst.
+     * 
+     * @return Decoded length in bytes.
+     */
+    private static int unescape(ByteBuffer bytes, int from, int to, int quote, byte[] dst) {
+        int length = 0;
+        for (int at = from; at < to; at++) {
+            byte b = bytes.get(at);
+            if (b == quote) break;
+            if (b == '\\' && at + 1 < to) {
+                b = bytes.get(++at);
+                switch (b) {
+                    case 'n' -> b = '\n';
+                    case 't' -> b = '\t';
+                    case 'r' -> b = '\r';
+                    case '0' -> b = 0;
+                    default -> { }
+                }
+            }
+            dst[length++] = b;
+        }
+        return length;
+    }
+}
\ No newline at end of file
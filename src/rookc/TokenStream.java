@@ -0,0 +1,158 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+/**
+ * Class TokenStream.
+ * Pulls tokens from a Lexer one at a time, for tools that read a
+ * source front to back and never look behind. Only the current
+ * token and a fixed number of tokens after it are kept, in a ring
+ * of primitive arrays, so nothing is allocated per token and
+ * nothing past the last token looked at is lexed.
+ * 
+ * Tokens are addressed relative to the current one, type(0) is
+ * the current token and type(k) the k-th after it.
+ * 
+ * @see TokenBuffer.java
+ */
+final class TokenStream {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final Lexer lex;
+    private final int mask;
+    private final byte[] types;
+    private final int[] starts, lengths, lines, ids;
+    /** Absolute index of the current token and of the first token not lexed yet. */
+    private int head, tail;
+    private boolean eof;
+
+    /**
+     * Constructor for TokenStream class.
+     * 
+     * @param lex Lexer positioned at the start of its source.
+     * @param lookahead Largest k passed to the accessors.
+     */
+    TokenStream(Lexer lex, int lookahead) {
+        int capacity = Integer.highestOneBit(Math.max(1, lookahead) << 1);
+        this.lex = lex;
+        this.mask = capacity - 1;
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+        this.ids = new int[capacity];
+    }
+
+    /**
+     * Returns the ring slot of the k-th token after the current
+     * one, lexing up to it if needed.
+     */
+    private int slot(int k) {
+        if (k < 0 || k > mask) {
+            throw new IllegalArgumentException("Lookahead " + k + " out of range 0.." + mask);
+        }
+        while (tail <= head + k) {
+            int i = tail & mask;
+            if (eof) {
+                // Past the end every token reads as the EOF.
+                int last = (tail - 1) & mask;
+                types[i] = types[last];
+                starts[i] = starts[last];
+                lengths[i] = lengths[last];
+                lines[i] = lines[last];
+                ids[i] = ids[last];
+            } else {
+                TokenType type = lex.getNextTokenType();
+                types[i] = (byte) type.ordinal();
+                starts[i] = lex.getTokenStart();
+                lengths[i] = lex.getTokenLength();
+                lines[i] = lex.getTokenLine();
+                ids[i] = lex.getTokenId();
+                eof = (type == TokenType.EOF);
+            }
+            tail++;
+        }
+        return (head + k) & mask;
+    }
+
+    /**
+     * Moves to the next token.
+     */
+    void advance() {
+        slot(0);
+        head++;
+    }
+
+    /**
+     * Returns the number of tokens advanced over.
+     * 
+     * @return int
+     */
+    int index() {
+        return head;
+    }
+
+    Source source() {
+        return lex.source;
+    }
+
+    TokenType type(int k) {
+        return TYPES[types[slot(k)]];
+    }
+
+    int start(int k) {
+        return starts[slot(k)];
+    }
+
+    int length(int k) {
+        return lengths[slot(k)];
+    }
+
+    int line(int k) {
+        return lines[slot(k)];
+    }
+
+    /**
+     * Returns the Interner id of an identifier or literal
+     * token, -1 for string literals and every other token.
+     * 
+     * @param k Distance from the current token.
+     * @return int
+     */
+    int id(int k) {
+        return ids[slot(k)];
+    }
+
+    /**
+     * Returns the text of a token. A new String is created
+     * on every call.
+     * 
+     * @param k Distance from the current token.
+     * @return String
+     */
+    String text(int k) {
+        int i = slot(k);
+        return lex.source.text(starts[i], lengths[i]);
+    }
+}
\ No newline at end of file
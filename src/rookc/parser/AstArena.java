@@ -0,0 +1,426 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Compact parse tree stored in a single int[]. Every node takes
+ * STRIDE ints: its NodeType ordinal (NONE for a null child), the
+ * index of its token, the Interner id of its value and the indexes
+ * of its first child, next sibling and last child. Node index 0 is
+ * the ROOT.
+ * 
+ * Copied subtrees are appended in pre-order, so their nodes are
+ * contiguous and a walk reads the array front to back. Parser adds
+ * nodes as it builds them, a declaration is still contiguous but
+ * the operands of an operator come before it. The tree of a
+ * CompilationUnit is kept in an arena, it is filled by
+ * Parser.parseInto or from the parse cache and written back with
+ * AstWriter, see toNode for the Node tree of a subtree.
+ */
+public final class AstArena {
+    /** Index used for a missing node or token. */
+    public static final int NONE = -1;
+
+    private static final int KIND = 0, TOKEN = 1, VALUE = 2, FIRST_CHILD = 3, NEXT_SIBLING = 4, LAST_CHILD = 5;
+    private static final int STRIDE = 6;
+    private static final NodeType[] KINDS = NodeType.values();
+
+    private int[] data;
+    private int size;
+
+    public AstArena() {
+        this(256);
+    }
+
+    /**
+     * @param capacity Number of nodes to allocate room for.
+     */
+    public AstArena(int capacity) {
+        data = new int[Math.max(1, capacity) * STRIDE];
+        add(NodeType.ROOT, NONE, Interner.ROOT);
+    }
+
+    /**
+     * Returns the index of the ROOT node.
+     * 
+     * @return int
+     */
+    public int getRoot() {
+        return 0;
+    }
+
+    /**
+     * Returns the number of nodes, including the ROOT.
+     * 
+     * @return int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a node without a parent.
+     * 
+     * @param kind Type of the node, null for a null child.
+     * @param token Index of the node's token, or NONE.
+     * @param value Interner id of the node's value, or NONE.
+     * @return Index of the new node.
+     */
+    public int add(NodeType kind, int token, int value) {
+        if ((size + 1) * STRIDE > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        int node = size++;
+        int base = node * STRIDE;
+        data[base + KIND] = (kind == null) ? NONE : kind.ordinal();
+        data[base + TOKEN] = token;
+        data[base + VALUE] = value;
+        data[base + FIRST_CHILD] = NONE;
+        data[base + NEXT_SIBLING] = NONE;
+        data[base + LAST_CHILD] = NONE;
+        return node;
+    }
+
+    /**
+     * Drops every node but the ROOT, keeping the memory.
+     */
+    public void clear() {
+        size = 0;
+        add(NodeType.ROOT, NONE, Interner.ROOT);
+    }
+
+    /**
+     * Makes child the last child of parent.
+     * 
+     * @param parent Index of the parent.
+     * @param child Index of a node without a parent.
+     */
+    public void appendChild(int parent, int child) {
+        int base = parent * STRIDE;
+        int last = data[base + LAST_CHILD];
+        if (last == NONE) {
+            data[base + FIRST_CHILD] = child;
+        } else {
+            data[last * STRIDE + NEXT_SIBLING] = child;
+        }
+        data[base + LAST_CHILD] = child;
+    }
+
+    /**
+     * Copies a Node tree into the arena as the last child of parent.
+     * The copy is iterative, so any depth fits.
+     * 
+     * @param parent Index of the parent.
+     * @param subtree Tree to copy, may be null.
+     * @return Index of the copy of subtree.
+     */
+    public int append(int parent, Node subtree) {
+        ArrayList<Node> nodes = new ArrayList<>();
+        int[] parents = new int[16];
+        nodes.add(subtree);
+        parents[0] = parent;
+
+        int first = NONE;
+        while (!nodes.isEmpty()) {
+            int top = nodes.size() - 1;
+            Node node = nodes.remove(top);
+            int index = (node == null) ? add(null, NONE, NONE) : add(node.getType(), node.getToken(), node.getValueId());
+            appendChild(parents[top], index);
+            if (first == NONE) first = index;
+            if (node == null) continue;
+
+            // Children are pushed last to first so they are copied in order.
+            ArrayList<Node> children = node.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                Node child = children.get(i);
+                if (nodes.size() == parents.length) parents = Arrays.copyOf(parents, parents.length * 2);
+                parents[nodes.size()] = index;
+                nodes.add(child);
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Moves the children of the ROOT of another arena to the end of
+     * the children of this ROOT. The nodes of other are copied in
+     * one block with their indexes shifted, nothing is walked.
+     * 
+     * @param other Arena to take the children from, left empty.
+     */
+    public void appendChildren(AstArena other) {
+        int first = other.getFirstChild(0);
+        if (first == NONE) return;
+        int shift = size - 1;
+        int count = other.size - 1;
+        if ((size + count) * STRIDE > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, (size + count) * STRIDE));
+        }
+        System.arraycopy(other.data, STRIDE, data, size * STRIDE, count * STRIDE);
+        for (int base = size * STRIDE, end = (size + count) * STRIDE; base < end; base += STRIDE) {
+            if (data[base + FIRST_CHILD] != NONE) data[base + FIRST_CHILD] += shift;
+            if (data[base + NEXT_SIBLING] != NONE) data[base + NEXT_SIBLING] += shift;
+            if (data[base + LAST_CHILD] != NONE) data[base + LAST_CHILD] += shift;
+        }
+        size += count;
+        appendChild(0, first + shift);
+        data[LAST_CHILD] = other.data[LAST_CHILD] + shift;
+        other.clear();
+    }
+
+    /**
+     * Copies a subtree of an AstReader into the arena as the last
+     * child of parent.
+     * 
+     * @param parent Index of the parent.
+     * @param ast Tree to copy from.
+     * @param subtree Index of the subtree in ast, not its ROOT.
+     * @return Index of the copy of subtree.
+     */
+    public int append(int parent, AstReader ast, int subtree) {
+        // Records are in pre-order, every node is followed by its subtree.
+        int[] parents = new int[16], remaining = new int[16];
+        int depth = 0;
+        parents[0] = parent;
+        remaining[0] = 1;
+        int first = NONE;
+        for (int node = subtree; depth >= 0; node++) {
+            NodeType kind = ast.getType(node);
+            int index = add(kind, (kind == null) ? NONE : ast.getToken(node), ast.getValueId(node));
+            appendChild(parents[depth], index);
+            if (first == NONE) first = index;
+            remaining[depth]--;
+            if (kind != null && ast.length(node) > 0) {
+                if (++depth == parents.length) {
+                    parents = Arrays.copyOf(parents, depth * 2);
+                    remaining = Arrays.copyOf(remaining, depth * 2);
+                }
+                parents[depth] = index;
+                remaining[depth] = ast.length(node);
+            }
+            while (depth >= 0 && remaining[depth] == 0) depth--;
+        }
+        return first;
+    }
+
+    /**
+     * Builds the Node tree of a subtree.
+     * 
+     * @param node Index of the subtree.
+     * @return Node, null for a null child.
+     */
+    public Node toNode(int node) {
+        if (getType(node) == null) return null;
+        Node top = new Node(getValueId(node), getType(node), getToken(node));
+        ArrayList<Node> copies = new ArrayList<>();
+        int[] stack = new int[16];
+        int count = 0;
+        copies.add(top);
+        stack[count++] = node;
+        while (count > 0) {
+            int parent = stack[--count];
+            Node copy = copies.remove(copies.size() - 1);
+            for (int child = getFirstChild(parent); child != NONE; child = getNextSibling(child)) {
+                NodeType kind = getType(child);
+                Node childCopy = (kind == null) ? null : new Node(getValueId(child), kind, getToken(child));
+                copy.addChild(childCopy);
+                if (childCopy != null && getFirstChild(child) != NONE) {
+                    if (count == stack.length) stack = Arrays.copyOf(stack, count * 2);
+                    stack[count++] = child;
+                    copies.add(childCopy);
+                }
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns the type of a node, null for a null child.
+     * 
+     * @return NodeType
+     */
+    public NodeType getType(int node) {
+        int kind = data[node * STRIDE + KIND];
+        return (kind < 0) ? null : KINDS[kind];
+    }
+
+    public int getToken(int node) {
+        return data[node * STRIDE + TOKEN];
+    }
+
+    public int getValueId(int node) {
+        return data[node * STRIDE + VALUE];
+    }
+
+    public String getValue(int node) {
+        int id = getValueId(node);
+        return (id >= 0) ? Interner.get(id) : null;
+    }
+
+    public int getFirstChild(int node) {
+        return data[node * STRIDE + FIRST_CHILD];
+    }
+
+    public int getNextSibling(int node) {
+        return data[node * STRIDE + NEXT_SIBLING];
+    }
+
+    public int length(int node) {
+        int count = 0;
+        for (int child = getFirstChild(node); child != NONE; child = getNextSibling(child)) count++;
+        return count;
+    }
+
+    /**
+     * Returns a Cursor positioned on the ROOT.
+     * 
+     * @return Cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Walks the subtree below node in pre-order, see Visitor. Null
+     * children are not visited.
+     * 
+     * @param node Index of the first node to visit.
+     * @param visitor Visitor to call.
+     */
+    public void walk(int node, Visitor visitor) {
+        Cursor cursor = new Cursor();
+        cursor.moveTo(node);
+        boolean descend = enter(visitor, node);
+        while (true) {
+            if (descend && cursor.firstChild()) {
+                descend = enter(visitor, cursor.node());
+                continue;
+            }
+            // Leave nodes until one with a next sibling is found.
+            while (true) {
+                if (getType(cursor.node()) != null) visitor.exit(this, cursor.node());
+                if (cursor.depth() == 0) return;
+                if (cursor.nextSibling()) break;
+                cursor.parent();
+            }
+            descend = enter(visitor, cursor.node());
+        }
+    }
+
+    private boolean enter(Visitor visitor, int node) {
+        return getType(node) != null && visitor.enter(this, node);
+    }
+
+    /**
+     * Callbacks of AstArena.walk.
+     */
+    public interface Visitor {
+        /**
+         * Called before the children of a node.
+         * 
+         * @return false to skip the children of the node.
+         */
+        boolean enter(AstArena ast, int node);
+
+        /**
+         * Called after the children of a node, or right after
+         * enter if they were skipped.
+         */
+        default void exit(AstArena ast, int node) {
+        }
+    }
+
+    /**
+     * Moves over the arena without allocating per node. The path
+     * from the node the cursor started on is kept in an int stack,
+     * so parent is O(1).
+     */
+    public final class Cursor {
+        private int[] path = new int[16];
+        private int depth;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves the cursor to a node and forgets the path.
+         */
+        public void moveTo(int node) {
+            path[0] = node;
+            depth = 0;
+        }
+
+        public int node() {
+            return path[depth];
+        }
+
+        /**
+         * Returns how many times parent can be called.
+         */
+        public int depth() {
+            return depth;
+        }
+
+        public NodeType getType() {
+            return AstArena.this.getType(node());
+        }
+
+        public int getToken() {
+            return AstArena.this.getToken(node());
+        }
+
+        public int getValueId() {
+            return AstArena.this.getValueId(node());
+        }
+
+        public String getValue() {
+            return AstArena.this.getValue(node());
+        }
+
+        public boolean firstChild() {
+            int child = getFirstChild(node());
+            if (child == NONE) return false;
+            if (depth + 1 == path.length) path = Arrays.copyOf(path, path.length * 2);
+            path[++depth] = child;
+            return true;
+        }
+
+        public boolean nextSibling() {
+            if (depth == 0) return false;
+            int sibling = getNextSibling(node());
+            if (sibling == NONE) return false;
+            path[depth] = sibling;
+            return true;
+        }
+
+        public boolean parent() {
+            if (depth == 0) return false;
+            depth--;
+            return true;
+        }
+    }
+}
\ No newline at end of file
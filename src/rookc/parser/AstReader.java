@@ -0,0 +1,292 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the binary AST format of AstWriter in place. Nothing is
+ * decoded up front, every accessor reads the buffer directly, so
+ * a mapped file can be walked without building Node objects.
+ * 
+ * Nodes are numbered by their record, in pre-order. The ROOT has
+ * the index after the last record, see getRoot. The children of
+ * a node are found from getFirstChild by skip:
+ * 
+ *     int child = reader.getFirstChild(node);
+ *     for (int i = 0; i < reader.length(node); i++, child = reader.skip(child)) ...
+ * 
+ * Reads use absolute positions, so a reader can be shared between
+ * threads.
+ */
+public final class AstReader {
+    /** Index used for a missing node. */
+    public static final int NONE = -1;
+
+    private static final int KIND = 0, VALUE = 4, TOKEN = 8, OFFSET = 12, CHILDREN = 16, SIZE = 20;
+    private static final int HEADER = 8;
+    private static final NodeType[] KINDS = NodeType.values();
+
+    private final ByteBuffer buffer;
+    private final int nodes, rootChildren, strings, stringOffsets, stringBytes;
+
+    /**
+     * @param buffer Buffer holding one tree from its position to its
+     * limit. The buffer itself is not moved.
+     * @throws IllegalArgumentException if the buffer does not hold
+     * a tree of this version.
+     */
+    public AstReader(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+        int end = this.buffer.limit() - AstWriter.FOOTER;
+        if (end < HEADER || this.buffer.getInt(0) != AstWriter.MAGIC
+            || this.buffer.getInt(4) != AstWriter.VERSION || this.buffer.getInt(end + 16) != AstWriter.MAGIC) {
+            throw new IllegalArgumentException("Not a version " + AstWriter.VERSION + " AST");
+        }
+        this.nodes = this.buffer.getInt(end);
+        this.rootChildren = this.buffer.getInt(end + 4);
+        this.strings = this.buffer.getInt(end + 8);
+        this.stringOffsets = this.buffer.getInt(end + 12);
+        this.stringBytes = stringOffsets + (strings + 1) * 4;
+        if (nodes < 0 || strings < 0 || HEADER + (long) nodes * AstWriter.RECORD != stringOffsets
+            || stringBytes > end || stringBytes + (long) this.buffer.getInt(stringOffsets + strings * 4) != end) {
+            throw new IllegalArgumentException("Malformed AST");
+        }
+    }
+
+    /**
+     * Returns the index of the ROOT node.
+     * 
+     * @return int
+     */
+    public int getRoot() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of nodes, including the ROOT.
+     * 
+     * @return int
+     */
+    public int size() {
+        return nodes + 1;
+    }
+
+    private int field(int node, int field) {
+        return buffer.getInt(HEADER + node * AstWriter.RECORD + field);
+    }
+
+    /**
+     * Returns the type of a node, null for a null child.
+     * 
+     * @return NodeType
+     */
+    public NodeType getType(int node) {
+        if (node == nodes) return NodeType.ROOT;
+        int kind = field(node, KIND);
+        return (kind < 0) ? null : KINDS[kind];
+    }
+
+    public int getToken(int node) {
+        return (node == nodes) ? NONE : field(node, TOKEN);
+    }
+
+    /**
+     * Returns the byte offset of the token of a node, NONE if it
+     * has no token or the offset was not written.
+     * 
+     * @return int
+     */
+    public int getOffset(int node) {
+        return (node == nodes) ? NONE : Math.max(field(node, OFFSET), NONE);
+    }
+
+    /**
+     * Returns the index of the value in the string table, NONE
+     * for the ROOT and null children.
+     * 
+     * @return int
+     */
+    public int getValueIndex(int node) {
+        return (node == nodes) ? NONE : field(node, VALUE);
+    }
+
+    /**
+     * Returns the value of a node. A new String is created on
+     * every call.
+     * 
+     * @return String
+     */
+    public String getValue(int node) {
+        int index = getValueIndex(node);
+        if (index == NONE) return (node == nodes) ? "ROOT" : null;
+        int start = stringStart(index);
+        byte[] utf8 = new byte[stringLength(index, start)];
+        buffer.get(stringBytes + start, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Interns the value of a node straight from the buffer.
+     * 
+     * @return Interner id of the value, NONE for null children.
+     */
+    public int getValueId(int node) {
+        int index = getValueIndex(node);
+        if (index == NONE) return (node == nodes) ? Interner.ROOT : NONE;
+        int start = stringStart(index);
+        return Interner.intern(buffer, stringBytes + start, stringLength(index, start));
+    }
+
+    private int stringStart(int index) {
+        if (index < 0 || index >= strings) throw new IllegalArgumentException("Malformed AST");
+        return buffer.getInt(stringOffsets + index * 4);
+    }
+
+    private int stringLength(int index, int start) {
+        int end = buffer.getInt(stringOffsets + (index + 1) * 4);
+        if (start < 0 || end < start || stringBytes + end > buffer.limit()) throw new IllegalArgumentException("Malformed AST");
+        return end - start;
+    }
+
+    /**
+     * Returns the number of children of a node.
+     * 
+     * @return int
+     */
+    public int length(int node) {
+        return (node == nodes) ? rootChildren : field(node, CHILDREN);
+    }
+
+    public int getFirstChild(int node) {
+        if (length(node) == 0) return NONE;
+        return (node == nodes) ? 0 : node + 1;
+    }
+
+    /**
+     * Returns the index after the subtree of a node, which is its
+     * next sibling if it has one.
+     * 
+     * @return int
+     */
+    public int skip(int node) {
+        return (node == nodes) ? nodes + 1 : node + field(node, SIZE);
+    }
+
+    /**
+     * Walks the subtree below node in pre-order. Null children
+     * are not visited.
+     * 
+     * @param node Index of the first node to visit.
+     * @param visitor Visitor to call.
+     */
+    public void walk(int node, Visitor visitor) {
+        // Every level holds the node entered and its unvisited children.
+        int[] path = new int[16], remaining = new int[16];
+        int depth = 0;
+        path[0] = node;
+        remaining[0] = visitor.enter(this, node) ? length(node) : 0;
+        int next = getFirstChild(node);
+        while (true) {
+            if (remaining[depth] == 0) {
+                visitor.exit(this, path[depth]);
+                if (depth == 0) return;
+                next = skip(path[depth--]);
+                continue;
+            }
+            remaining[depth]--;
+            int child = next;
+            if (getType(child) == null) {
+                next = skip(child);
+                continue;
+            }
+            if (++depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+                remaining = Arrays.copyOf(remaining, depth * 2);
+            }
+            path[depth] = child;
+            remaining[depth] = visitor.enter(this, child) ? length(child) : 0;
+            next = getFirstChild(child);
+        }
+    }
+
+    /**
+     * Builds the Node tree below a node. Values are interned from
+     * the buffer.
+     * 
+     * @param node Index of the node.
+     * @return Node
+     */
+    public Node toNode(int node) {
+        Node top = new Node(getValueId(node), getType(node), getToken(node));
+        Node[] parents = new Node[16];
+        int[] remaining = new int[16];
+        int depth = 0;
+        parents[0] = top;
+        remaining[0] = length(node);
+        int next = getFirstChild(node);
+        while (depth >= 0) {
+            if (remaining[depth] == 0) {
+                depth--;
+                continue;
+            }
+            remaining[depth]--;
+            int child = next;
+            next = child + 1;
+            NodeType type = getType(child);
+            Node copy = (type == null) ? null : new Node(getValueId(child), type, getToken(child));
+            parents[depth].addChild(copy);
+            if (copy != null && length(child) > 0) {
+                if (++depth == parents.length) {
+                    parents = Arrays.copyOf(parents, depth * 2);
+                    remaining = Arrays.copyOf(remaining, depth * 2);
+                }
+                parents[depth] = copy;
+                remaining[depth] = length(child);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Callbacks of AstReader.walk.
+     */
+    public interface Visitor {
+        /**
+         * Called before the children of a node.
+         * 
+         * @return false to skip the children of the node.
+         */
+        boolean enter(AstReader ast, int node);
+
+        /**
+         * Called after the children of a node, or right after
+         * enter if they were skipped.
+         */
+        default void exit(AstReader ast, int node) {
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,307 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc.parser;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Writes a parse tree in the binary AST format read by AstReader.
+ * The children of the ROOT are written one at a time as they are
+ * added, so a tree never has to be complete in memory.
+ * 
+ * The format is, with every int big-endian:
+ * 
+ * header      MAGIC, VERSION
+ * nodes       one record of RECORD bytes per node in pre-order:
+ *             NodeType ordinal (-1 for a null child), string index
+ *             of the value (-1 for none), token index, byte offset of the token
+ *             (-1 if unknown), number of children and number of
+ *             nodes in the subtree
+ * strings     string count + 1 offsets into the bytes that follow,
+ *             then the UTF-8 bytes of every value
+ * footer      node count, ROOT child count, string count, offset
+ *             of the strings, MAGIC
+ * 
+ * The ROOT itself has no record, it is described by the footer.
+ */
+public final class AstWriter {
+    /** "RAST". */
+    public static final int MAGIC = 0x52415354;
+    public static final int VERSION = 2;
+    /** Bytes of a node record. */
+    public static final int RECORD = 24;
+    /** Bytes of the footer. */
+    public static final int FOOTER = 20;
+
+    private final DataOutputStream out;
+    /** Byte offset of a token index. */
+    private final IntUnaryOperator offsets;
+    private final HashMap<Integer, Integer> strings = new HashMap<>();
+    private final ArrayList<Integer> values = new ArrayList<>();
+    private int nodes, children;
+
+    /**
+     * Writes the header. The stream is not buffered here. Byte
+     * offsets are written as unknown.
+     * 
+     * @param out Stream to write to.
+     * @throws IOException
+     */
+    public AstWriter(OutputStream out) throws IOException {
+        this(out, token -> -1);
+    }
+
+    /**
+     * Writes the header. The stream is not buffered here.
+     * 
+     * @param out Stream to write to.
+     * @param offsets Byte offset of a token index, for example the
+     * start of the token in its source.
+     * @throws IOException
+     */
+    public AstWriter(OutputStream out, IntUnaryOperator offsets) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.offsets = offsets;
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+    }
+
+    /**
+     * Writes a whole tree and finishes the stream.
+     * 
+     * @param root ROOT of the tree.
+     * @param out Stream to write to.
+     * @throws IOException
+     */
+    public static void write(Node root, OutputStream out) throws IOException {
+        write(root, out, token -> -1);
+    }
+
+    /**
+     * Writes a whole arena with the byte offsets of its tokens and
+     * finishes the stream.
+     * 
+     * @param arena Arena to write.
+     * @param out Stream to write to.
+     * @param offsets Byte offset of a token index.
+     * @throws IOException
+     */
+    public static void write(AstArena arena, OutputStream out, IntUnaryOperator offsets) throws IOException {
+        AstWriter writer = new AstWriter(out, offsets);
+        for (int child = arena.getFirstChild(arena.getRoot()); child != AstArena.NONE; child = arena.getNextSibling(child)) {
+            writer.add(arena, child);
+        }
+        writer.finish();
+    }
+
+    /**
+     * Writes a whole tree with the byte offsets of its tokens and
+     * finishes the stream.
+     * 
+     * @param root ROOT of the tree.
+     * @param out Stream to write to.
+     * @param offsets Byte offset of a token index.
+     * @throws IOException
+     */
+    public static void write(Node root, OutputStream out, IntUnaryOperator offsets) throws IOException {
+        AstWriter writer = new AstWriter(out, offsets);
+        for (Node child : root.getChildren()) {
+            writer.add(child);
+        }
+        writer.finish();
+    }
+
+    /**
+     * Writes a subtree as the next child of the ROOT.
+     * 
+     * @param subtree Subtree to write, may be null.
+     * @throws IOException
+     */
+    public void add(Node subtree) throws IOException {
+        // Pre-order first, the subtree sizes are summed from the back.
+        ArrayList<Node> order = new ArrayList<>();
+        int[] parents = new int[16];
+        ArrayList<Node> stack = new ArrayList<>();
+        int[] stackParents = new int[16];
+        stack.add(subtree);
+        stackParents[0] = -1;
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            Node node = stack.remove(top);
+            if (order.size() == parents.length) parents = Arrays.copyOf(parents, parents.length * 2);
+            parents[order.size()] = stackParents[top];
+            int index = order.size();
+            order.add(node);
+            if (node == null) continue;
+
+            ArrayList<Node> kids = node.getChildren();
+            for (int i = kids.size() - 1; i >= 0; i--) {
+                if (stack.size() == stackParents.length) stackParents = Arrays.copyOf(stackParents, stackParents.length * 2);
+                stackParents[stack.size()] = index;
+                stack.add(kids.get(i));
+            }
+        }
+
+        int[] sizes = new int[order.size()];
+        for (int i = order.size() - 1; i >= 0; i--) {
+            sizes[i]++;
+            if (parents[i] >= 0) sizes[parents[i]] += sizes[i];
+        }
+
+        for (int i = 0; i < order.size(); i++) {
+            Node node = order.get(i);
+            if (node == null) {
+                record(null, -1, -1, 0, 1);
+            } else {
+                record(node.getType(), node.getValueId(), node.getToken(), node.length(), sizes[i]);
+            }
+        }
+        nodes += order.size();
+        children++;
+    }
+
+    /**
+     * Writes a subtree of an arena as the next child of the ROOT.
+     * 
+     * @param arena Arena holding the subtree.
+     * @param subtree Index of the subtree, not the arena's ROOT.
+     * @throws IOException
+     */
+    public void add(AstArena arena, int subtree) throws IOException {
+        // Pre-order first, the subtree sizes are summed from the back.
+        int[] order = new int[16], parents = new int[16], lengths = new int[16];
+        int count = 0;
+        int[] stack = new int[16], stackParents = new int[16], kids = new int[16];
+        int top = 0;
+        stack[top] = subtree;
+        stackParents[top++] = -1;
+        while (top > 0) {
+            top--;
+            if (count == order.length) {
+                order = Arrays.copyOf(order, count * 2);
+                parents = Arrays.copyOf(parents, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            int node = stack[top];
+            int index = count++;
+            order[index] = node;
+            parents[index] = stackParents[top];
+            if (arena.getType(node) == null) continue;
+
+            int length = 0;
+            for (int child = arena.getFirstChild(node); child != AstArena.NONE; child = arena.getNextSibling(child)) {
+                if (length == kids.length) kids = Arrays.copyOf(kids, length * 2);
+                kids[length++] = child;
+            }
+            lengths[index] = length;
+            for (int i = length - 1; i >= 0; i--) {
+                if (top == stack.length) {
+                    stack = Arrays.copyOf(stack, top * 2);
+                    stackParents = Arrays.copyOf(stackParents, top * 2);
+                }
+                stack[top] = kids[i];
+                stackParents[top++] = index;
+            }
+        }
+
+        int[] sizes = new int[count];
+        for (int i = count - 1; i >= 0; i--) {
+            sizes[i]++;
+            if (parents[i] >= 0) sizes[parents[i]] += sizes[i];
+        }
+
+        for (int i = 0; i < count; i++) {
+            int node = order[i];
+            record(arena.getType(node), arena.getValueId(node), arena.getToken(node), lengths[i], sizes[i]);
+        }
+        nodes += count;
+        children++;
+    }
+
+    /**
+     * Writes one node record, a null type for a null child.
+     */
+    private void record(NodeType type, int value, int token, int length, int size) throws IOException {
+        if (type == null) {
+            out.writeInt(-1);
+            out.writeInt(-1);
+            out.writeInt(-1);
+            out.writeInt(-1);
+            out.writeInt(0);
+            out.writeInt(1);
+            return;
+        }
+        out.writeInt(type.ordinal());
+        out.writeInt((value >= 0) ? string(value) : -1);
+        out.writeInt(token);
+        out.writeInt((token >= 0) ? offsets.applyAsInt(token) : -1);
+        out.writeInt(length);
+        out.writeInt(size);
+    }
+
+    private int string(int id) {
+        Integer index = strings.get(id);
+        if (index == null) {
+            index = values.size();
+            strings.put(id, index);
+            values.add(id);
+        }
+        return index;
+    }
+
+    /**
+     * Writes the strings and the footer and flushes the stream.
+     * The stream is not closed.
+     * 
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        int offset = out.size();
+        byte[][] utf8 = new byte[values.size()][];
+        int length = 0;
+        out.writeInt(0);
+        for (int i = 0; i < utf8.length; i++) {
+            utf8[i] = Interner.get(values.get(i)).getBytes(StandardCharsets.UTF_8);
+            length += utf8[i].length;
+            out.writeInt(length);
+        }
+        for (byte[] bytes : utf8) {
+            out.write(bytes);
+        }
+
+        out.writeInt(nodes);
+        out.writeInt(children);
+        out.writeInt(utf8.length);
+        out.writeInt(offset);
+        out.writeInt(MAGIC);
+        out.flush();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc.parser;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Global interner for identifiers and literals. Every distinct
+ * spelling gets a dense int id, the same in every compilation
+ * unit and on every thread, so names can be stored and compared
+ * as ints.
+ * 
+ * Spans are interned straight from the source bytes. A lookup
+ * of a known spelling takes no lock and allocates nothing, only
+ * the first occurrence of a spelling takes the lock and creates
+ * its String.
+ * 
+ * Ids are kept until released, see mark and release. A host that
+ * outlives its trees, an editor or a build server, releases the
+ * spellings of a session once nothing holds its ids. Interning
+ * more than MAX_IDS spellings or MAX_BYTES bytes of them fails
+ * with an IllegalStateException.
+ */
+public final class Interner {
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(int[].class);
+    /** Limits of the table, the slots of MAX_IDS ids fit the largest power of two array. */
+    public static final int MAX_IDS = 1 << 29, MAX_BYTES = 1 << 30;
+
+    /**
+     * Arrays of the interner. A new Table is published whenever
+     * the arrays are replaced, readers always probe a consistent one.
+     */
+    private static final class Table {
+        /** Open addressing table of id + 1, 0 marks a free slot. */
+        final int[] slots;
+        final int[] hashes, offsets, lengths;
+        final byte[] bytes;
+        final String[] strings;
+
+        Table(int[] slots, int[] hashes, int[] offsets, int[] lengths, byte[] bytes, String[] strings) {
+            this.slots = slots;
+            this.hashes = hashes;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.bytes = bytes;
+            this.strings = strings;
+        }
+    }
+
+    private static volatile Table table = empty();
+    /** Number of ids and bytes in use, only touched under the lock. */
+    private static int count, used;
+
+    /**
+     * Ids of the values of nodes that are not spelled by a token,
+     * and of the import keyword. They are the first ids, so a
+     * release never drops them.
+     */
+    public static final int ROOT = intern("ROOT"), FUNCTION = intern("FUNCTION"), PARAM_LIST = intern("PARAM_LIST"),
+        COND = intern("COND"), IF = intern("IF"), ELIF = intern("ELIF"), ELSE = intern("ELSE"), IMPORT = intern("import");
+    /** Number of ids interned by the class itself. */
+    private static final int FIXED = count;
+
+    private Interner() {
+    }
+
+    /**
+     * Returns the id of the UTF-8 span src[start, start + length).
+     * 
+     * @param src Source bytes.
+     * @param start Offset of the span.
+     * @param length Length of the span in bytes.
+     * @return int
+     */
+    public static int intern(ByteBuffer src, int start, int length) {
+        int hash = hash(src, start, length);
+        int id = find(table, hash, src, start, length);
+        return (id >= 0) ? id : insert(hash, src, start, length);
+    }
+
+    /**
+     * Returns the id of a String.
+     * 
+     * @param value String to intern.
+     * @return int
+     */
+    public static int intern(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        return intern(ByteBuffer.wrap(utf8), 0, utf8.length);
+    }
+
+    /**
+     * Returns the spelling of an id.
+     * 
+     * @param id Id returned by intern.
+     * @return String
+     */
+    public static String get(int id) {
+        return table.strings[id];
+    }
+
+    /**
+     * Returns the number of ids handed out so far.
+     * 
+     * @return int
+     */
+    public static synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Returns a mark for release. Every id handed out so far is
+     * below it.
+     * 
+     * @return int
+     */
+    public static synchronized int mark() {
+        return count;
+    }
+
+    /**
+     * Drops every id handed out after a mark and the memory of its
+     * spelling. Ids below the mark stay valid, the ones at or above
+     * it must no longer be held by any node or token, they are
+     * handed out again for other spellings. Lookups do not take the
+     * lock, so nothing may be parsed while the ids are released.
+     * 
+     * @param mark Mark returned by mark.
+     */
+    public static synchronized void release(int mark) {
+        mark = Math.max(mark, FIXED);
+        if (mark >= count) return;
+        // Spellings are stored in id order, the kept ones end where the mark's begins.
+        Table t = table;
+        int bytes = t.offsets[mark];
+        Table kept = resize(t, mark, capacity(512, mark), capacity(4096, bytes), capacity(1024, mark * 2L));
+        Arrays.fill(kept.strings, mark, kept.strings.length, null);
+        count = mark;
+        used = bytes;
+        table = kept;
+    }
+
+    private static Table empty() {
+        return new Table(new int[1024], new int[512], new int[512], new int[512], new byte[4096], new String[512]);
+    }
+
+    private static int hash(ByteBuffer src, int start, int length) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ src.get(start + i)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int find(Table t, int hash, ByteBuffer src, int start, int length) {
+        int[] slots = t.slots;
+        int mask = slots.length - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int id = (int) SLOT.getAcquire(slots, slot) - 1;
+            if (id < 0) return -1;
+            if (t.hashes[id] == hash && t.lengths[id] == length && matches(t, id, src, start)) return id;
+        }
+    }
+
+    private static boolean matches(Table t, int id, ByteBuffer src, int start) {
+        byte[] bytes = t.bytes;
+        int offset = t.offsets[id];
+        for (int i = 0, n = t.lengths[id]; i < n; i++) {
+            if (bytes[offset + i] != src.get(start + i)) return false;
+        }
+        return true;
+    }
+
+    private static synchronized int insert(int hash, ByteBuffer src, int start, int length) {
+        Table t = table;
+        int id = find(t, hash, src, start, length);
+        if (id >= 0) return id;
+
+        if (count == t.hashes.length || used + length > t.bytes.length || (count + 1) * 2 > t.slots.length) {
+            t = grow(t, length);
+        }
+
+        id = count;
+        byte[] bytes = t.bytes;
+        for (int i = 0; i < length; i++) {
+            bytes[used + i] = src.get(start + i);
+        }
+        t.hashes[id] = hash;
+        t.offsets[id] = used;
+        t.lengths[id] = length;
+        t.strings[id] = new String(bytes, used, length, StandardCharsets.UTF_8);
+        used += length;
+        count++;
+
+        // Everything above happens before a reader sees the slot.
+        int mask = t.slots.length - 1;
+        int slot = hash & mask;
+        while (t.slots[slot] != 0) slot = (slot + 1) & mask;
+        SLOT.setRelease(t.slots, slot, id + 1);
+        return id;
+    }
+
+    private static Table grow(Table t, int length) {
+        // Capacities are computed in long, doubling past the limits would overflow.
+        long ids = count + 1L, bytes = (long) used + length;
+        if (ids > MAX_IDS || bytes > MAX_BYTES) {
+            throw new IllegalStateException("Interner is full: " + count + " ids, " + used + " bytes");
+        }
+        Table grown = resize(t, count, capacity(t.hashes.length, ids), capacity(t.bytes.length, bytes),
+            capacity(t.slots.length, ids * 2));
+        table = grown;
+        return grown;
+    }
+
+    /**
+     * Returns the smallest power of two multiple of capacity that
+     * holds size, size is at most twice MAX_IDS or MAX_BYTES.
+     */
+    private static int capacity(int capacity, long size) {
+        long c = capacity;
+        while (c < size) c *= 2;
+        return (int) c;
+    }
+
+    /**
+     * Copies the first ids of a table into arrays of the given
+     * capacities and indexes them again.
+     */
+    private static Table resize(Table t, int ids, int capacity, int byteCapacity, int slotCapacity) {
+        int[] slots = new int[slotCapacity];
+        int mask = slotCapacity - 1;
+        for (int id = 0; id < ids; id++) {
+            int slot = t.hashes[id] & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+        return new Table(slots, Arrays.copyOf(t.hashes, capacity), Arrays.copyOf(t.offsets, capacity),
+            Arrays.copyOf(t.lengths, capacity), Arrays.copyOf(t.bytes, byteCapacity), Arrays.copyOf(t.strings, capacity));
+    }
+}
\ No newline at end of file
@@ -27,14 +27,33 @@ import java.util.ArrayList;
 
 public final class Node {
     private ArrayList<Node> nodes = new ArrayList<>();
-    private String value;
+    private int value;
+    private int token = -1;
     private NodeType nodeType;
 
     public Node (String value, NodeType nodeType) {
+        this(Interner.intern(value), nodeType);
+    }
+
+    /**
+     * @param value Interner id of the value, -1 for none.
+     * @param nodeType Type of the node.
+     */
+    public Node (int value, NodeType nodeType) {
         this.value = value;
         this.nodeType = nodeType;
     }
 
+    /**
+     * @param value Interner id of the value.
+     * @param nodeType Type of the node.
+     * @param token Index of the token the node was built from.
+     */
+    public Node (int value, NodeType nodeType, int token) {
+        this(value, nodeType);
+        this.token = token;
+    }
+
     public int length() {
         return this.nodes.size();
     }
@@ -47,10 +66,40 @@ public final class Node {
         return this.nodes;
     }
 
+    /**
+     * Returns the value, null for a node without one. A string
+     * literal has no value, it is decoded from its token by
+     * TokenBuffer.literal.
+     */
     public String getValue() {
+        return (this.value >= 0) ? Interner.get(this.value) : null;
+    }
+
+    /**
+     * Returns the Interner id of the value, two nodes have
+     * the same value iff they have the same id. -1 for a
+     * node without a value.
+     */
+    public int getValueId() {
         return this.value;
     }
 
+    /**
+     * Returns the index of the token the node was built
+     * from, -1 for nodes without a token.
+     */
+    public int getToken() {
+        return this.token;
+    }
+
+    /**
+     * Moves the node to another token, used when the tokens
+     * before it change.
+     */
+    public void setToken(int token) {
+        this.token = token;
+    }
+
     public NodeType getType() {
         return nodeType;
     }
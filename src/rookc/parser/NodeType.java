@@ -72,9 +72,58 @@ public enum NodeType {
     CLASS;
 
 
+    /** Binding power of every binary operator, 0 for other tokens. */
+    private static final byte[] PRECEDENCE = new byte[TokenType.values().length];
+    private static final boolean[] RIGHT_ASSOCIATIVE = new boolean[TokenType.values().length];
+
+    /** Binding power of the prefix operators, above every binary operator. */
+    public static final int UNARY_PRECEDENCE = 12;
+
+    static {
+        // '=' is lexed as EQUAL, so it is an assignment here.
+        binary(1, true, TokenType.EQUAL, TokenType.ASSIGN, TokenType.PLUS_ASSIGN, TokenType.MINUS_ASSIGN,
+            TokenType.ASTERISK_ASSIGN, TokenType.SLASH_ASSIGN, TokenType.PERCENT_ASSIGN, TokenType.AND_ASSIGN,
+            TokenType.OR_ASSIGN, TokenType.XOR_ASSIGN, TokenType.LEFT_SHIFT_ASSIGN, TokenType.RIGHT_SHIFT_ASSIGN,
+            TokenType.UNSIGNED_RIGHT_SHIFT_ASSIGN);
+        binary(2, false, TokenType.OR);
+        binary(3, false, TokenType.AND);
+        binary(4, false, TokenType.BITWISE_OR);
+        binary(5, false, TokenType.BITWISE_XOR);
+        binary(6, false, TokenType.BITWISE_AND);
+        binary(7, false, TokenType.EQUAL_EQUAL, TokenType.NOT_EQUAL);
+        binary(8, false, TokenType.LESS_THAN, TokenType.LESS_THAN_OR_EQUAL, TokenType.GREATER_THAN,
+            TokenType.GREATER_THAN_OR_EQUAL);
+        binary(9, false, TokenType.LEFT_SHIFT, TokenType.RIGHT_SHIFT, TokenType.UNSIGNED_RIGHT_SHIFT);
+        binary(10, false, TokenType.PLUS, TokenType.MINUS);
+        binary(11, false, TokenType.ASTERISK, TokenType.SLASH, TokenType.PERCENT);
+    }
+
+    private static void binary(int precedence, boolean rightAssociative, TokenType... tokenTypes) {
+        for (TokenType tokenType : tokenTypes) {
+            PRECEDENCE[tokenType.ordinal()] = (byte) precedence;
+            RIGHT_ASSOCIATIVE[tokenType.ordinal()] = rightAssociative;
+        }
+    }
+
     public static boolean isBinOp(TokenType tokenType) {
+        return PRECEDENCE[tokenType.ordinal()] != 0;
+    }
+
+    /**
+     * Returns the binding power of a binary operator, higher binds
+     * tighter. 0 if the token is not a binary operator.
+     */
+    public static int precedence(TokenType tokenType) {
+        return PRECEDENCE[tokenType.ordinal()];
+    }
+
+    public static boolean isRightAssociative(TokenType tokenType) {
+        return RIGHT_ASSOCIATIVE[tokenType.ordinal()];
+    }
+
+    public static boolean isUnOp(TokenType tokenType) {
         return switch (tokenType) {
-            case ASSIGN, PLUS, MINUS , ASTERISK, SLASH, PERCENT, BITWISE_AND, BITWISE_OR, BITWISE_XOR, BITWISE_NOT, LEFT_SHIFT, RIGHT_SHIFT,        UNSIGNED_RIGHT_SHIFT, PLUS_ASSIGN, MINUS_ASSIGN, ASTERISK_ASSIGN, SLASH_ASSIGN, PERCENT_ASSIGN, AND_ASSIGN, OR_ASSIGN, XOR_ASSIGN, LEFT_SHIFT_ASSIGN, RIGHT_SHIFT_ASSIGN, UNSIGNED_RIGHT_SHIFT_ASSIGN -> {
+            case NOT, BITWISE_NOT, MINUS -> {
                 yield true;
             }
             default -> {
@@ -23,30 +23,169 @@ SOFTWARE.
 */
 package rookc.parser;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
+/**
+ * Lexically scoped symbols of one compilation unit. Every unit
+ * owns its own table, so units can be compiled concurrently.
+ * 
+ * Names are Interner ids. Bindings are kept in declaration order
+ * in parallel arrays and an open addressing table maps a name to
+ * its innermost binding.
+ * A binding that shadows an outer one remembers it, so leaving a
+ * scope only restores the slots of the bindings made in it.
+ * Lookups do not allocate.
+ */
 public class SymbolTable {
-    private static HashMap<String, DataType> table;
-    
+    private static final DataType[] TYPES = DataType.values();
+
+    /** Bindings in declaration order. */
+    private int[] names = new int[16];
+    private byte[] types = new byte[16];
+    private int[] shadowed = new int[16];
+    private int count;
+
+    /** Open addressing table of binding index + 1, 0 marks a free slot. */
+    private int[] slots = new int[32];
+
+    /** Binding count at the start of every open scope. */
+    private int[] marks = new int[8];
+    private int depth;
+
     public SymbolTable() {
-        table = new HashMap<>();
     }
 
-    public static DataType getDataType(String identifier) {
-        return table.get(identifier);
+    /**
+     * Opens a nested scope.
+     */
+    public void enterScope() {
+        if (depth == marks.length) marks = Arrays.copyOf(marks, depth * 2);
+        marks[depth++] = count;
+    }
+
+    /**
+     * Closes the innermost scope and drops every binding made in it.
+     */
+    public void exitScope() {
+        if (depth == 0) throw new IllegalStateException("No scope to exit.");
+        int mark = marks[--depth];
+        // Bindings are undone newest first. A slot is only freed when no newer
+        // slot is left, which keeps the linear probe chains intact.
+        while (count > mark) {
+            count--;
+            int slot = find(names[count]);
+            slots[slot] = (shadowed[count] >= 0) ? shadowed[count] + 1 : 0;
+        }
+    }
+
+    /**
+     * Returns the number of open scopes, 0 for the outermost one.
+     * 
+     * @return int
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public DataType getDataType(int identifier) {
+        int binding = lookup(identifier);
+        return (binding >= 0) ? TYPES[types[binding]] : null;
+    }
+
+    public DataType getDataType(String identifier) {
+        return getDataType(Interner.intern(identifier));
+    }
+
+    /**
+     * Declares an identifier in the innermost scope. It shadows any
+     * binding of the same name in an outer scope, a second declaration
+     * in the same scope replaces the type.
+     */
+    public void addIdentifier(int identifier, DataType dataType) {
+        int slot = find(identifier);
+        int current = slots[slot] - 1;
+        int mark = (depth > 0) ? marks[depth - 1] : 0;
+        if (current >= mark) {
+            types[current] = (byte) dataType.ordinal();
+            return;
+        }
+
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+            types = Arrays.copyOf(types, count * 2);
+            shadowed = Arrays.copyOf(shadowed, count * 2);
+        }
+        names[count] = identifier;
+        types[count] = (byte) dataType.ordinal();
+        shadowed[count] = current;
+        slots[slot] = ++count;
+
+        if (current < 0 && count * 2 > slots.length) rehash();
     }
 
-    public static void addIdentifier(String identifier, DataType dataType) {
-        table.put(identifier, dataType);
+    public void addIdentifier(String identifier, DataType dataType) {
+        addIdentifier(Interner.intern(identifier), dataType);
     }
 
-    public static boolean doesExist(String identifier) {
-        return (table.get(identifier) != null) ? true : false;
+    public boolean doesExist(int identifier) {
+        return lookup(identifier) >= 0;
     }
 
-    public static boolean isValid(String identifier, DataType dataType) {
-        DataType type = table.get(identifier);
+    public boolean doesExist(String identifier) {
+        return doesExist(Interner.intern(identifier));
+    }
+
+    /**
+     * Checks if an identifier is declared in the innermost scope.
+     */
+    public boolean isDeclaredInScope(int identifier) {
+        int binding = lookup(identifier);
+        return binding >= 0 && binding >= ((depth > 0) ? marks[depth - 1] : 0);
+    }
+
+    public boolean isDeclaredInScope(String identifier) {
+        return isDeclaredInScope(Interner.intern(identifier));
+    }
+
+    public boolean isValid(int identifier, DataType dataType) {
+        return getDataType(identifier) == dataType;
+    }
+
+    public boolean isValid(String identifier, DataType dataType) {
+        return getDataType(identifier) == dataType;
+    }
+
+    private int lookup(int identifier) {
+        return slots[find(identifier)] - 1;
+    }
+
+    /**
+     * Returns the slot holding the identifier, or the free slot
+     * where it would be inserted.
+     */
+    private int find(int identifier) {
+        int mask = slots.length - 1;
+        int slot = mix(identifier) & mask;
+        for (;;) {
+            int binding = slots[slot] - 1;
+            if (binding < 0 || names[binding] == identifier) return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
 
-        return (type == dataType) ? true : false;
+    /**
+     * Doubles the slot table. Bindings are replayed in declaration
+     * order so slots keep their insertion order, see exitScope.
+     */
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        for (int i = 0; i < count; i++) {
+            slots[find(names[i])] = i + 1;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import rookc.parser.*;
+
+/**
+ * Class AstArenaTest.
+ * A tree kept in an AstArena is the tree of Parser.parse, also
+ * after a trip through AstWriter and AstReader.
+ */
+class AstArenaTest {
+    private static final String TEXT = "import a.b;\n"
+        + "func f(a, b): bool {\n    if (a + ) {\n    }\n    elif (b == \"a\\tb\") {\n    }\n    else {\n    }\n}\n"
+        + "func : int {\n}\nfunc g(c): Point {\n    if (!c) {\n    }\n}\n";
+
+    private static void dump(Node node, int depth, StringBuilder sb) {
+        sb.append(" ".repeat(depth));
+        if (node == null) {
+            sb.append("null\n");
+            return;
+        }
+        sb.append(node.getType()).append(' ').append(node.getValue()).append(' ').append(node.getToken()).append('\n');
+        for (Node child : node.getChildren()) dump(child, depth + 1, sb);
+    }
+
+    private static String dump(Node node) {
+        StringBuilder sb = new StringBuilder();
+        dump(node, 0, sb);
+        return sb.toString();
+    }
+
+    @Test
+    void parseIntoKeepsTheTreeOfAParse() {
+        Source source = Source.of("t.rook", TEXT);
+        Parser parser = new Parser(source, new Report(source));
+        parser.parse();
+        String parsed = dump(parser.getRootNode());
+        assertTrue(parsed.contains("null"), parsed);
+
+        AstArena arena = new AstArena();
+        new Parser(source, new Report(source)).parseInto(arena);
+        assertEquals(parsed, dump(arena.toNode(arena.getRoot())));
+    }
+
+    @Test
+    void arenaSurvivesTheAstFormat() throws IOException {
+        Source source = Source.of("t.rook", TEXT);
+        AstArena arena = new AstArena();
+        Parser parser = new Parser(source, new Report(source));
+        parser.parseInto(arena);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AstWriter.write(arena, bytes, parser.getTokens()::start);
+        AstReader ast = new AstReader(ByteBuffer.wrap(bytes.toByteArray()));
+        AstArena copy = new AstArena();
+        int root = ast.getRoot();
+        for (int i = 0, child = ast.getFirstChild(root); i < ast.length(root); i++, child = ast.skip(child)) {
+            copy.append(copy.getRoot(), ast, child);
+        }
+        assertEquals(dump(arena.toNode(arena.getRoot())), dump(copy.toNode(copy.getRoot())));
+        assertEquals(dump(ast.toNode(root)), dump(copy.toNode(copy.getRoot())));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import rookc.parser.*;
+
+/**
+ * Class IncrementalParserTest.
+ * Every edit must leave the tree and the diagnostics a full parse
+ * of the edited source gives.
+ */
+class IncrementalParserTest {
+    private static final String[] PIECES = { "func ", "f", "(", ")", "{", "}", "\n", " ", ":", "int", ";",
+        "if", "else", "elif", "import ", "a.b;", "\"s\\n\"", "\"x", "'c'", "1", "2.5", "+", "-", ">", "==",
+        ",", "@", "/* c */", "// t\n", "x", "1e", "e", "1e1", "-1", "e+", "1." };
+
+    /**
+     * Returns the tree, the printed diagnostics and the counts of a
+     * parser, one node per line with its token. Token indexes of
+     * the children of root are moved by starts.
+     */
+    private static String state(Node root, int[] starts, Report report) throws IOException {
+        StringBuilder sb = new StringBuilder("ROOT\n");
+        for (int i = 0; i < starts.length; i++) dump(root.getChildren().get(i), starts[i], 1, sb);
+        StringWriter out = new StringWriter();
+        report.write(out);
+        sb.append(out).append(report.getErrorCount()).append('/').append(report.getWarningCount());
+        return sb.toString();
+    }
+
+    private static void dump(Node node, int start, int depth, StringBuilder sb) {
+        sb.append(" ".repeat(depth));
+        if (node == null) {
+            sb.append("null\n");
+            return;
+        }
+        int token = (node.getToken() >= 0) ? start + node.getToken() : -1;
+        sb.append(node.getType()).append(' ').append(node.getValue()).append(' ').append(token).append('\n');
+        for (Node child : node.getChildren()) dump(child, start, depth + 1, sb);
+    }
+
+    private static String parse(String text) throws IOException {
+        Source source = Source.of("t.rook", text);
+        Parser parser = new Parser(source, new Report(source));
+        parser.parse();
+        return state(parser.getRootNode(), new int[parser.getRootNode().getChildren().size()], parser.getReport());
+    }
+
+    private static String parse(IncrementalParser parser) throws IOException {
+        int[] starts = new int[parser.getRootNode().getChildren().size()];
+        for (int i = 0; i < starts.length; i++) starts[i] = parser.getDeclarationStart(i);
+        return state(parser.getRootNode(), starts, parser.getReport());
+    }
+
+    @Test
+    void diagnosticsStayWithTheirDeclaration() throws IOException {
+        String text = "func f(): int {\n}func func g(): int {\n}\n";
+        Source source = Source.of("t.rook", text);
+        IncrementalParser parser = new IncrementalParser(source, new Report(source));
+        assertEquals(parse(text), parse(parser));
+
+        parser.edit(30, 0, "");
+        assertEquals(parse(text), parse(parser));
+        assertTrue(parse(parser).contains("t.rook:2:7: Parse error. Expected function name."));
+    }
+
+    /**
+     * Edits a condition at a byte offset and checks the parser
+     * against a full parse of the edited text.
+     */
+    private static void editCondition(String condition, int offset, int removed, String inserted, String edited)
+            throws IOException {
+        String head = "func f(a): int {\n  if (";
+        String text = head + condition + ") {\n  }\n}\n";
+        Source source = Source.of("t.rook", text);
+        IncrementalParser parser = new IncrementalParser(source, new Report(source));
+        parser.edit(head.length() + offset, removed, inserted);
+        assertEquals(parse(head + edited + ") {\n  }\n}\n"), parse(parser), condition + " -> " + edited);
+    }
+
+    @Test
+    void editsInsideTheLookaheadOfAnEarlierToken() throws IOException {
+        editCondition("1e 1", 2, 1, "", "1e1");
+        editCondition("1e1 1", 2, 0, " ", "1e 1 1");
+        editCondition("1e", 2, 0, "-1", "1e-1");
+        editCondition("1e+a", 3, 1, "1", "1e+1");
+        editCondition("a-1e", 4, 0, "1", "a-1e1");
+        editCondition("1. 5", 2, 1, "", "1.5");
+        // x, then the non-letter \u00d7 and \u0080, until the middle bytes go and leave \u00c0.
+        editCondition("x\u00d7\u0080", 2, 2, "", "x\u00c0");
+    }
+
+    @Test
+    void randomEditsMatchAFullParse() throws IOException {
+        for (int seed = 0; seed < 200; seed++) {
+            Random random = new Random(seed);
+            StringBuilder sb = new StringBuilder((seed % 2 == 0) ? "import a.b;\nimport c;\n" : "");
+            for (int i = 0; i < 10; i++) sb.append("func f").append(i).append("(a): int {\n  if (a > 1) {\n  }\n}\n");
+            String text = sb.toString();
+            Source source = Source.of("t.rook", text);
+            IncrementalParser parser = new IncrementalParser(source, new Report(source));
+            for (int edit = 0; edit < 30; edit++) {
+                int offset = random.nextInt(text.length() + 1);
+                int removed = (random.nextInt(3) == 0) ? Math.min(text.length() - offset, random.nextInt(6)) : 0;
+                String inserted = (random.nextInt(4) == 0) ? "" : PIECES[random.nextInt(PIECES.length)];
+                text = text.substring(0, offset) + inserted + text.substring(offset + removed);
+                parser.edit(offset, removed, inserted);
+                assertEquals(parse(text), parse(parser), "seed " + seed + ", edit " + edit);
+            }
+        }
+    }
+}
\ No newline at end of file
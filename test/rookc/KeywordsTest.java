@@ -0,0 +1,75 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class KeywordsTest.
+ * Every keyword is found in its slot and every other identifier
+ * falls through, including the ones that hash to a keyword.
+ */
+class KeywordsTest {
+    private static TokenType lookup(String word) {
+        // Surrounded by other bytes, the span must be all that is read.
+        ByteBuffer src = ByteBuffer.wrap(("(" + word + ")").getBytes(StandardCharsets.UTF_8));
+        return Keywords.lookup(src, 1, src.limit() - 2);
+    }
+
+    @Test
+    void everyKeywordIsFound() {
+        int count = 0;
+        for (TokenType type = TokenType.BOOL; type.compareTo(TokenType.WHILE) <= 0;
+             type = TokenType.values()[type.ordinal() + 1]) {
+            assertEquals(type, lookup(type.name().toLowerCase()), type.name());
+            count++;
+        }
+        assertEquals(23, count);
+    }
+
+    @Test
+    void nearMissesAreIdentifiers() {
+        for (TokenType type = TokenType.BOOL; type.compareTo(TokenType.WHILE) <= 0;
+             type = TokenType.values()[type.ordinal() + 1]) {
+            String word = type.name().toLowerCase();
+            int n = word.length();
+            // Same first and last character and length, the same slot.
+            String middle = word.charAt(0) + "x".repeat(n - 2) + word.charAt(n - 1);
+            if (n > 2) assertEquals(TokenType.IDENTIFIER, lookup(middle), middle);
+            assertEquals(TokenType.IDENTIFIER, lookup(type.name()), type.name());
+            assertEquals(TokenType.IDENTIFIER, lookup(word + "s"), word + "s");
+            assertEquals(TokenType.IDENTIFIER, lookup(word.substring(0, n - 1)), word.substring(0, n - 1));
+            assertEquals(TokenType.IDENTIFIER, lookup("_" + word), "_" + word);
+            assertEquals(TokenType.IDENTIFIER, lookup(word.substring(0, n - 1) + "\u00e9"), word);
+        }
+        assertEquals(TokenType.IDENTIFIER, lookup("i"));
+        assertEquals(TokenType.IDENTIFIER, lookup("continues"));
+        assertEquals(TokenType.IDENTIFIER, lookup("x"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import rookc.parser.Interner;
+
+/**
+ * Class LexerTest.
+ * Token streams of the DFA scanner.
+ */
+class LexerTest {
+    /**
+     * Returns the tokens of a source as "TYPE text", and the
+     * diagnostics in report.
+     */
+    static List<String> tokens(String text, Report report) {
+        Lexer lex = new Lexer(Source.of("t.rook", text), report);
+        List<String> tokens = new ArrayList<>();
+        for (TokenType type = lex.getNextTokenType(); type != TokenType.EOF; type = lex.getNextTokenType()) {
+            tokens.add(type + " " + lex.getTokenValue());
+        }
+        return tokens;
+    }
+
+    static List<String> tokens(String text) {
+        Report report = new Report(Source.of("t.rook", text));
+        List<String> tokens = tokens(text, report);
+        assertEquals(0, report.getErrorCount(), text);
+        return tokens;
+    }
+
+    @Test
+    void operatorsTakeTheLongestMatch() {
+        assertEquals(List.of("UNSIGNED_RIGHT_SHIFT_ASSIGN >>>=", "UNSIGNED_RIGHT_SHIFT >>>", "RIGHT_SHIFT_ASSIGN >>=",
+            "RIGHT_SHIFT >>", "GREATER_THAN_OR_EQUAL >=", "GREATER_THAN >"), tokens(">>>= >>> >>= >> >= >"));
+        assertEquals(List.of("LEFT_SHIFT_ASSIGN <<=", "LEFT_SHIFT <<", "LESS_THAN_OR_EQUAL <=", "LESS_THAN <"),
+            tokens("<<= << <= <"));
+        assertEquals(List.of("AND &&", "AND_ASSIGN &=", "BITWISE_AND &", "OR ||", "OR_ASSIGN |=", "BITWISE_OR |",
+            "XOR_ASSIGN ^=", "BITWISE_XOR ^", "BITWISE_NOT ~"), tokens("&& &= & || |= | ^= ^ ~"));
+        assertEquals(List.of("INCREMENT ++", "PLUS_ASSIGN +=", "DECREMENT --", "MINUS_ASSIGN -=", "ARROW ->",
+            "EQUAL_EQUAL ==", "EQUAL =", "NOT_EQUAL !=", "NOT !"), tokens("++ += -- -= -> == = != !"));
+        // Without white space the longest token is taken first.
+        assertEquals(List.of("INCREMENT ++", "PLUS +", "UNSIGNED_RIGHT_SHIFT >>>", "GREATER_THAN_OR_EQUAL >="),
+            tokens("+++>>>>="));
+        assertEquals(List.of("IDENTIFIER a", "SLASH /", "IDENTIFIER b", "SLASH_ASSIGN /=", "IDENTIFIER c", "IDENTIFIER d"),
+            tokens("a/b /= c // comment\n\td"));
+    }
+
+    @Test
+    void numbersBackUpToTheLastAcceptingState() {
+        assertEquals(List.of("INTEGER_LITERAL 12", "FLOATING_LITERAL 3.5", "INTEGER_LITERAL 1e5",
+            "FLOATING_LITERAL 2.5e-3", "FLOATING_LITERAL 4.0E+2"), tokens("12 3.5 1e5 2.5e-3 4.0E+2"));
+        // An exponent without digits and a point without a fraction are not part of the number.
+        assertEquals(List.of("INTEGER_LITERAL 1", "IDENTIFIER e", "PLUS +", "IDENTIFIER x"), tokens("1e+x"));
+        assertEquals(List.of("INTEGER_LITERAL 1", "DOT .", "IDENTIFIER x"), tokens("1.x"));
+        assertEquals(List.of("FLOATING_LITERAL 1.5", "IDENTIFIER e"), tokens("1.5e"));
+        assertEquals(List.of("IDENTIFIER e1", "IDENTIFIER x1e5"), tokens("e1 x1e5"));
+    }
+
+    @Test
+    void minusBeforeADigitIsASignOnlyWhereNoOperandEnds() {
+        assertEquals(List.of("IDENTIFIER a", "EQUAL =", "INTEGER_LITERAL -1"), tokens("a = -1"));
+        assertEquals(List.of("LEFT_PAREN (", "FLOATING_LITERAL -2.5", "RIGHT_PAREN )"), tokens("(-2.5)"));
+        assertEquals(List.of("IDENTIFIER x", "MINUS -", "INTEGER_LITERAL 1"), tokens("x-1"));
+        assertEquals(List.of("INTEGER_LITERAL 2", "MINUS -", "INTEGER_LITERAL 1"), tokens("2 -1"));
+        assertEquals(List.of("RIGHT_PAREN )", "MINUS -", "INTEGER_LITERAL -1"), tokens(") - -1"));
+        assertEquals(List.of("RIGHT_BRACKET ]", "MINUS -", "INTEGER_LITERAL 1"), tokens("] -1"));
+        assertEquals(List.of("TRUE true", "MINUS -", "INTEGER_LITERAL 1"), tokens("true -1"));
+        assertEquals(List.of("RETURN return", "INTEGER_LITERAL -1"), tokens("return -1"));
+        // Comments in between do not change the previous token.
+        assertEquals(List.of("IDENTIFIER x", "MINUS -", "INTEGER_LITERAL 1"), tokens("x // c\n-1"));
+    }
+
+    @Test
+    void literalsRunToTheirClosingQuote() {
+        assertEquals(List.of("STRING_LITERAL \"a\\\"b\"", "CHARACTER_LITERAL '\\''", "STRING_LITERAL \"\""),
+            tokens("\"a\\\"b\" '\\'' \"\""));
+        Report report = new Report(Source.of("t.rook", "x \"open"));
+        assertEquals(List.of("IDENTIFIER x", "STRING_LITERAL \"open"), tokens("x \"open", report));
+        assertEquals(1, report.getErrorCount());
+    }
+
+    @Test
+    void tokensKnowTheirLines() {
+        Lexer lex = new Lexer(Source.of("t.rook", "a\n\n  b // c\n\"x\ny\" d"), new Report(Source.of("t.rook", "")));
+        int[] lines = new int[4];
+        for (int i = 0; i < lines.length; i++) {
+            lex.getNextTokenType();
+            lines[i] = lex.getTokenLine();
+        }
+        assertEquals("1 3 4 5", lines[0] + " " + lines[1] + " " + lines[2] + " " + lines[3]);
+        assertEquals(5, lex.getLineMap().getLineCount());
+    }
+
+    @Test
+    void unicodeLettersMakeIdentifiers() {
+        assertEquals(List.of("IDENTIFIER gr\u00f6\u00dfe", "EQUAL =", "IDENTIFIER \u03c02", "SEMICOLON ;"),
+            tokens("gr\u00f6\u00dfe = \u03c02;"));
+        assertEquals(List.of("IDENTIFIER \u540d\u524d", "IDENTIFIER _x\ud835\udc65"),
+            tokens("\u540d\u524d _x\ud835\udc65"));
+        // Digits continue an identifier but do not start one.
+        assertEquals(List.of("IDENTIFIER a\u0663"), tokens("a\u0663"));
+        assertEquals("gr\u00f6\u00dfe", Interner.get(Interner.intern("gr\u00f6\u00dfe")));
+    }
+
+    @Test
+    void otherBytesAboveAsciiAreErrors() throws IOException {
+        Report report = new Report(Source.of("t.rook", "a \u00a9 b"));
+        assertEquals(List.of("IDENTIFIER a", "NONE \u00a9", "IDENTIFIER b"), tokens("a \u00a9 b", report));
+        assertEquals(1, report.getErrorCount());
+
+        // A truncated sequence is one error per byte and never reads past the end.
+        Path file = Files.createTempFile("rookc", ".rook");
+        Files.write(file, new byte[] { 'a', (byte) 0xC3 });
+        Source source = Source.read(file.toString());
+        Lexer lex = new Lexer(source, new Report(source));
+        assertEquals(TokenType.IDENTIFIER, lex.getNextTokenType());
+        assertEquals(TokenType.NONE, lex.getNextTokenType());
+        assertEquals(TokenType.EOF, lex.getNextTokenType());
+    }
+
+    @Test
+    void unclosedCharacterLiteralIsNotInterned() {
+        String text = "'a + b;\n" + "c + d;\n".repeat(1000);
+        Report report = new Report(Source.of("t.rook", text));
+        Lexer lex = new Lexer(Source.of("t.rook", text), report);
+        int size = Interner.size();
+        assertEquals(TokenType.CHARACTER_LITERAL, lex.getNextTokenType());
+        assertEquals(text.length(), lex.getTokenLength());
+        assertEquals(-1, lex.getTokenId());
+        assertEquals(size, Interner.size());
+        assertEquals(1, report.getErrorCount());
+    }
+
+    @Test
+    void bulkSkipsLexLikeTheByteLoop() {
+        String[] pieces = { " ", "  \t", "\n", "\r\n", "        \n    ", "// note\n", "// " + "x".repeat(40) + "\n",
+            "/* a\n b */", "name", "some_long_identifier_9", "\u00e9t\u00e9", "12345678901", "3.14159265", "1e10",
+            "\"a string of some length\"", "\"esc\\\"aped\"", "'c'", "+", "-", "(", ")", "{", "}", ";", "func", "if" };
+        Random random = new Random(24);
+        for (int round = 0; round < 100; round++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = random.nextInt(200); i > 0; i--) sb.append(pieces[random.nextInt(pieces.length)]);
+            String text = sb.toString();
+            assertEquals(lex(text, false), lex(text, true), text);
+        }
+    }
+
+    /**
+     * Returns every token of a source with its offsets and line,
+     * the diagnostics and the line map, with or without the bulk
+     * skips.
+     */
+    private static String lex(String text, boolean bulk) {
+        Source source = Source.of("t.rook", text);
+        Report report = new Report(source);
+        Lexer lex = new Lexer(source, report);
+        lex.bulk = bulk;
+        StringBuilder sb = new StringBuilder();
+        for (TokenType type = lex.getNextTokenType(); type != TokenType.EOF; type = lex.getNextTokenType()) {
+            sb.append(type).append(' ').append(lex.getTokenStart()).append(' ').append(lex.getTokenLength())
+                .append(' ').append(lex.getTokenLine()).append('\n');
+        }
+        LineMap lines = lex.getLineMap();
+        for (int line = 1; line <= lines.getLineCount(); line++) sb.append(lines.lineStart(line)).append(' ');
+        return sb.append(report.getErrorCount()).toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class LineMapTest.
+ * Lines and columns of offsets, and maps carried across edits.
+ */
+class LineMapTest {
+    /**
+     * Returns the start offsets of every line, space separated.
+     */
+    static String starts(LineMap map) {
+        StringBuilder sb = new StringBuilder();
+        for (int line = 1; line <= map.getLineCount(); line++) sb.append(map.lineStart(line)).append(' ');
+        return sb.toString();
+    }
+
+    @Test
+    void offsetsHaveLinesAndByteColumns() {
+        Source source = Source.of("t.rook", "ab\n\nc\u00e9d\r\nlast");
+        LineMap map = LineMap.of(source);
+        assertEquals(4, map.getLineCount());
+        assertEquals("0 3 4 10 ", starts(map));
+
+        assertEquals(1, map.line(0));
+        assertEquals(1, map.line(2));
+        assertEquals(2, map.line(3));
+        assertEquals(3, map.line(4));
+        assertEquals(4, map.line(10));
+        assertEquals(4, map.line(source.length()));
+        assertEquals(3, map.column(2));
+        assertEquals(1, map.column(3));
+        // The 'd' after a two byte character.
+        assertEquals(4, map.column(7));
+
+        assertEquals(2, map.lineEnd(1, source));
+        assertEquals(3, map.lineEnd(2, source));
+        assertEquals(8, map.lineEnd(3, source));
+        assertEquals(14, map.lineEnd(4, source));
+    }
+
+    @Test
+    void theLexerMapsTheLinesItScans() {
+        Source source = Source.of("t.rook", "a // one\n/* two\n three */ b\n\"x\ny\" c\n");
+        Lexer lex = new Lexer(source, new Report(source));
+        while (lex.getNextTokenType() != TokenType.EOF) {
+        }
+        assertEquals(starts(LineMap.of(source)), starts(lex.getLineMap()));
+    }
+
+    @Test
+    void editsGiveTheMapOfTheEditedSource() {
+        Random random = new Random(12);
+        String[] pieces = { "", "\n", "a", "\n\n", "b\nc", "\r\n", "\u00e9\n" };
+        Source source = Source.of("t.rook", "one\ntwo\n\nthree\n");
+        LineMap map = LineMap.of(source);
+        for (int i = 0; i < 500; i++) {
+            int offset = random.nextInt(source.length() + 1);
+            int removed = random.nextInt(Math.min(6, source.length() - offset) + 1);
+            byte[] inserted = pieces[random.nextInt(pieces.length)].getBytes(StandardCharsets.UTF_8);
+            source = source.edit(offset, removed, inserted);
+            map = map.edit(offset, removed, source, inserted.length);
+            assertEquals(starts(LineMap.of(source)), starts(map), "edit " + i);
+        }
+    }
+}
\ No newline at end of file
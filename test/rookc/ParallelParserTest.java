@@ -0,0 +1,110 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import rookc.parser.*;
+
+/**
+ * Class ParallelParserTest.
+ * A source parsed in chunks gives the tree, tokens and diagnostics
+ * of a parse on one thread.
+ */
+class ParallelParserTest {
+    private static final String[] PIECES = {
+        "func f%d(a, b): int {\n    if (a + %d * b) {\n    }\n    elif (b) {\n    }\n    else {\n    }\n}\n",
+        "func g%d(s): string {\n    if (s == \"func } {\") {\n    }\n}\n",
+        "// func h%d() {\nfunc h%d(): bool {\n    if ('}') {\n    }\n}\n",
+        "func \u00e9func%d(): int {\n}\n",
+    };
+    private static final String[] JUNK = { "{", "}", "(", ")", ";", "func ", "$", "else ", "1e", "-", "\n" };
+
+    private static String source(Random random, int functions, int junk) {
+        StringBuilder sb = new StringBuilder("import a.b;\n");
+        for (int i = 0; i < functions; i++) {
+            String piece = PIECES[random.nextInt(PIECES.length)];
+            sb.append(piece.replace("%d", Integer.toString(i)));
+        }
+        for (int i = 0; i < junk; i++) sb.insert(random.nextInt(sb.length() + 1), JUNK[random.nextInt(JUNK.length)]);
+        return sb.toString();
+    }
+
+    private static String state(Node root, TokenBuffer tokens, Report report) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        dump(root, 0, sb);
+        for (int i = 0; i < tokens.size(); i++) {
+            sb.append(tokens.type(i)).append(' ').append(tokens.start(i)).append(' ').append(tokens.line(i)).append('\n');
+        }
+        StringWriter out = new StringWriter();
+        report.write(out);
+        return sb.append(out).append(report.getErrorCount()).append('/').append(report.getWarningCount()).toString();
+    }
+
+    private static void dump(Node node, int depth, StringBuilder sb) {
+        sb.append(" ".repeat(depth));
+        if (node == null) {
+            sb.append("null\n");
+            return;
+        }
+        sb.append(node.getType()).append(' ').append(node.getValue()).append(' ').append(node.getToken()).append('\n');
+        for (Node child : node.getChildren()) dump(child, depth + 1, sb);
+    }
+
+    private static void assertSameParse(String text) throws IOException {
+        Source source = Source.of("t.rook", text);
+        Report report = new Report(source);
+        Parser parser = new Parser(source, report);
+        parser.parse();
+        // A parse cut short lexes only part of the source, the rest is lexed here.
+        String expected = state(parser.getRootNode(), TokenBuffer.of(new Lexer(source, new Report(source))), report);
+        for (int chunks : new int[] { 2, 5, 17 }) {
+            Report chunked = new Report(source);
+            ParallelParser parallel = new ParallelParser(source, chunked, chunks);
+            assertEquals(expected, state(parallel.getRootNode(), parallel.getTokens(), chunked), chunks + " chunks\n" + text);
+        }
+    }
+
+    @Test
+    void chunksParseLikeOneParser() throws IOException {
+        Random random = new Random(23);
+        for (int seed = 0; seed < 60; seed++) assertSameParse(source(random, 40, random.nextInt(5)));
+    }
+
+    @Test
+    void errorCapStopsWhereOneParserStops() throws IOException {
+        Random random = new Random(100);
+        for (int seed = 0; seed < 20; seed++) {
+            String text = source(random, 300, 0) + "func : int {\n}\n".repeat(Parser.MAX_ERRORS + 10);
+            assertSameParse(text);
+            assertSameParse(source(random, 300, 400));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class ParseCacheTest.
+ * A unit compiled from the cache reports the same as a unit
+ * that is parsed.
+ */
+class ParseCacheTest {
+    private static String compile(Path file, ParseCache cache) throws IOException {
+        CompilationUnit unit = CompilationUnit.compile(file.toString(), cache);
+        unit.declare(List.of());
+        StringWriter out = new StringWriter();
+        unit.getReport().write(out);
+        return out.toString();
+    }
+
+    @Test
+    void cachedTreeReportsLikeAParse() throws IOException {
+        Path dir = Files.createTempDirectory("rookc");
+        Path file = Files.writeString(dir.resolve("t.rook"), "func f(): int {\n}\nfunc f(): int {\n}\nfunc : int {\n}\n");
+        ParseCache cache = ParseCache.open(dir.resolve("cache"), 1 << 20);
+
+        String parsed = compile(file, cache);
+        assertTrue(parsed.contains("t.rook:3:6: Duplicate declaration of f."), parsed);
+        assertEquals(parsed, compile(file, cache));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,404 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import rookc.parser.*;
+
+/**
+ * Class ParserTest.
+ * Trees and diagnostics of small programs, one grammar rule
+ * per test.
+ */
+class ParserTest {
+    /**
+     * Returns the tree of a source, one node per line as its depth
+     * in spaces, its type and its value.
+     */
+    static String tree(String text) {
+        Source source = Source.of("t.rook", text);
+        Parser parser = new Parser(source, new Report(source));
+        parser.parse();
+        StringBuilder sb = new StringBuilder();
+        dump(parser.getRootNode(), 0, sb);
+        return sb.toString();
+    }
+
+    private static void dump(Node node, int depth, StringBuilder sb) {
+        sb.append(" ".repeat(depth));
+        if (node == null) {
+            sb.append("null\n");
+            return;
+        }
+        sb.append(node.getType()).append(' ').append(node.getValue()).append('\n');
+        for (Node child : node.getChildren()) dump(child, depth + 1, sb);
+    }
+
+    /**
+     * Returns the printed diagnostics of a source.
+     */
+    static String diagnostics(String text) throws IOException {
+        Source source = Source.of("t.rook", text);
+        Report report = new Report(source);
+        new Parser(source, report).parse();
+        StringWriter out = new StringWriter();
+        report.write(out);
+        return out.toString();
+    }
+
+    /**
+     * Returns the condition of "if (text) { }" in prefix form,
+     * "(op left right)" for every operator node.
+     */
+    static String condition(String text) throws IOException {
+        String source = "if (" + text + ") { }\n";
+        assertEquals("", diagnostics(source), text);
+        Source file = Source.of("t.rook", source);
+        Parser parser = new Parser(file, new Report(file));
+        parser.parse();
+        Node cond = parser.getRootNode().getChildren().get(0).getChildren().get(0);
+        assertEquals(NodeType.COND, cond.getType());
+        StringBuilder sb = new StringBuilder();
+        prefix(cond.getChildren().get(0), sb);
+        return sb.toString();
+    }
+
+    private static void prefix(Node node, StringBuilder sb) {
+        if (node.getChildren().isEmpty()) {
+            sb.append(node.getValue());
+            return;
+        }
+        sb.append('(').append(node.getValue());
+        for (Node child : node.getChildren()) prefix(child, sb.append(' '));
+        sb.append(')');
+    }
+
+    @Test
+    void returnTypeFollowsParameterList() throws IOException {
+        String text = "func f(a, b): int {\n}\n";
+        assertEquals("", diagnostics(text));
+        assertEquals(String.join("\n", List.of(
+            "ROOT ROOT",
+            " FUNC FUNCTION",
+            "  IDENTIFIER f",
+            "  PARAM PARAM_LIST",
+            "   PARAM a",
+            "   PARAM b",
+            "  RETURN_TYPE int", "")), tree(text));
+    }
+
+    @Test
+    void typeKeywordsAreReturnTypes() throws IOException {
+        for (String type : new String[] { "int", "float", "char", "bool", "string", "Point" }) {
+            assertEquals("", diagnostics("func f(): " + type + " {\n}\n"), type);
+        }
+        assertTrue(diagnostics("func f(): 1 {\n}\n").contains("Invalid return type."));
+    }
+
+    @Test
+    void functionEndsAtItsClosingBrace() throws IOException {
+        String text = "func f(): int {\n}\nfunc g(): int {\n}\n";
+        assertEquals("", diagnostics(text));
+        assertEquals(String.join("\n", List.of(
+            "ROOT ROOT",
+            " FUNC FUNCTION",
+            "  IDENTIFIER f",
+            "  PARAM PARAM_LIST",
+            "  RETURN_TYPE int",
+            " FUNC FUNCTION",
+            "  IDENTIFIER g",
+            "  PARAM PARAM_LIST",
+            "  RETURN_TYPE int", "")), tree(text));
+    }
+
+    @Test
+    void everyStatementOfABodyIsKept() throws IOException {
+        String text = "func f(a): int {\n  if (a > 1) {\n  }\n  if (a < 2) {\n  }\n}\n";
+        assertEquals("", diagnostics(text));
+        assertEquals(String.join("\n", List.of(
+            "ROOT ROOT",
+            " FUNC FUNCTION",
+            "  IDENTIFIER f",
+            "  PARAM PARAM_LIST",
+            "   PARAM a",
+            "  RETURN_TYPE int",
+            "  IF IF",
+            "   COND COND",
+            "    BIN_OP >",
+            "     IDENTIFIER a",
+            "     LITERAL 1",
+            "  IF IF",
+            "   COND COND",
+            "    BIN_OP <",
+            "     IDENTIFIER a",
+            "     LITERAL 2", "")), tree(text));
+    }
+
+    @Test
+    void elseBodyStartsAfterItsBrace() throws IOException {
+        String text = "func f(a): int {\n  if (a) {\n    else {\n      if (a) { }\n    }\n  }\n}\n";
+        assertEquals("", diagnostics(text));
+        assertTrue(tree(text).contains("   ELSE ELSE\n    IF IF\n     COND COND\n      IDENTIFIER a\n"));
+        assertTrue(diagnostics("func f(a): int {\n  if (a) {\n    else if (a) { }\n  }\n}\n").contains("Expected '{'."));
+    }
+
+    @Test
+    void generatedSourcesParseWithoutErrors() throws IOException {
+        // The shapes of bench/SourceGenerator, written out small.
+        String text = "func f0(a0, a1): bool {\n    if (a0 + 1 * (a1 - 2)) {\n        if (!a1) {\n        }\n"
+            + "    elif (a1 >= 3.5) {\n    }\n    else {\n    }\n    }\n}\n\nfunc f1(a0): Point {\n}\n";
+        assertEquals("", diagnostics(text));
+    }
+
+    @Test
+    void stringLiteralsAreDecodedFromTheirToken() {
+        Source source = Source.of("t.rook", "if (\"a\\tb\" == \"c\") { }\n");
+        Parser parser = new Parser(source, new Report(source));
+        parser.parse();
+        Node operator = parser.getRootNode().getChildren().get(0).getChildren().get(0).getChildren().get(0);
+        Node left = operator.getChildren().get(0), right = operator.getChildren().get(1);
+        assertNull(left.getValue());
+        assertEquals(-1, left.getValueId());
+        assertEquals("a\tb", parser.getTokens().literal(left.getToken()));
+        assertEquals("c", parser.getTokens().literal(right.getToken()));
+    }
+
+    @Test
+    void importNamesAreMadeOfTheirTokens() throws IOException {
+        for (String text : new String[] { "import a.b;\n", "import a. // dep\n b;\n", "import a .\n\tb;\n" }) {
+            assertEquals("", diagnostics(text), text);
+            assertEquals("ROOT ROOT\n IMPORT import\n  PKG_NAME a.b\n", tree(text), text);
+
+            Source source = Source.of("t.rook", text);
+            AstArena scanned = ImportScanner.scan(source, new Report(source));
+            assertEquals("a.b", scanned.getValue(scanned.getFirstChild(scanned.getFirstChild(scanned.getRoot()))), text);
+        }
+    }
+
+    @Test
+    void tighterOperatorsAreChildrenOfLooserOnes() throws IOException {
+        assertEquals("(+ a (* b c))", condition("a + b * c"));
+        assertEquals("(+ (* a b) c)", condition("a * b + c"));
+        assertEquals("(|| (&& a (== b c)) (< d (<< e 1)))", condition("a && b == c || d < e << 1"));
+        assertEquals("(| a (^ b (& c d)))", condition("a | b ^ c & d"));
+        assertEquals("(* (- a) (! b))", condition("-a * !b"));
+        assertEquals("(* (+ a b) c)", condition("(a + b) * c"));
+        assertEquals("(- (~ (+ a b)))", condition("-~(a + b)"));
+    }
+
+    @Test
+    void assignmentIsRightAssociativeAndTheRestLeft() throws IOException {
+        assertEquals("(- (- a b) c)", condition("a - b - c"));
+        assertEquals("(/ (% (* a b) c) d)", condition("a * b % c / d"));
+        assertEquals("(== (!= a b) c)", condition("a != b == c"));
+        assertEquals("(= a (+= b (= c 1)))", condition("a = b += c = 1"));
+        assertEquals("(- a (- b c))", condition("a - (b - c)"));
+    }
+
+    @Test
+    void longAndDeepExpressionsDoNotRecurse() throws IOException {
+        int n = 200_000;
+        String nested = "(".repeat(n) + "a" + ")".repeat(n);
+        assertEquals("a", condition(nested));
+
+        // A left leaning chain, walked down its left edge.
+        String chain = "if (a" + " - a".repeat(n) + ") { }\n";
+        assertEquals("", diagnostics(chain));
+        Source source = Source.of("t.rook", chain);
+        Parser parser = new Parser(source, new Report(source));
+        parser.parse();
+        Node node = parser.getRootNode().getChildren().get(0).getChildren().get(0).getChildren().get(0);
+        for (int i = 0; i < n; i++) {
+            assertEquals(NodeType.BIN_OP, node.getType());
+            assertEquals(NodeType.IDENTIFIER, node.getChildren().get(1).getType());
+            node = node.getChildren().get(0);
+        }
+        assertEquals(NodeType.IDENTIFIER, node.getType());
+    }
+
+    @Test
+    void conditionsOfIfAndElifAreExpressionTrees() throws IOException {
+        String text = "func f(a): int {\n  if (a > 1 && a < 9) {\n    if (a) {\n    }\n  elif (!a) {\n  }\n"
+            + "  elif (a == (1 + 2)) {\n  }\n  else {\n  }\n  }\n}\n";
+        assertEquals("", diagnostics(text));
+        assertTrue(tree(text).endsWith(String.join("\n", List.of(
+            "  IF IF",
+            "   COND COND",
+            "    BIN_OP &&",
+            "     BIN_OP >",
+            "      IDENTIFIER a",
+            "      LITERAL 1",
+            "     BIN_OP <",
+            "      IDENTIFIER a",
+            "      LITERAL 9",
+            "   IF IF",
+            "    COND COND",
+            "     IDENTIFIER a",
+            "   ELIF ELIF",
+            "    COND COND",
+            "     UN_OP !",
+            "      IDENTIFIER a",
+            "   ELIF ELIF",
+            "    COND COND",
+            "     BIN_OP ==",
+            "      IDENTIFIER a",
+            "      BIN_OP +",
+            "       LITERAL 1",
+            "       LITERAL 2",
+            "   ELSE ELSE", ""))));
+    }
+
+    @Test
+    void brokenConditionsKeepTheirShape() throws IOException {
+        String text = "if (a +) {\n}\nif () {\n}\nif (b) {\n}\n";
+        assertEquals(String.join("\n", List.of(
+            "ROOT ROOT",
+            " IF IF",
+            "  COND COND",
+            "   BIN_OP +",
+            "    IDENTIFIER a",
+            "    null",
+            " IF IF",
+            "  COND COND",
+            "   null",
+            " IF IF",
+            "  COND COND",
+            "   IDENTIFIER b", "")), tree(text));
+        String errors = diagnostics(text);
+        assertTrue(errors.contains("t.rook:1:8: Parse error. Unexpected token."), errors);
+        assertTrue(errors.contains("t.rook:3:5: Parse error. Unexpected token."), errors);
+        assertFalse(errors.contains("t.rook:5:"), errors);
+    }
+
+    @Test
+    void malformedStatementsAreSkippedUpToTheNextOne() throws IOException {
+        String text = "func f(a): int {\n  if (a > ) {\n    a + ;\n  }\n  if (a) {\n  }\n}\n"
+            + "func g(: int {\n}\nfunc h(): int {\n}\n";
+        assertEquals(String.join("\n", List.of(
+            "ROOT ROOT",
+            " FUNC FUNCTION",
+            "  IDENTIFIER f",
+            "  PARAM PARAM_LIST",
+            "   PARAM a",
+            "  RETURN_TYPE int",
+            "  IF IF",
+            "   COND COND",
+            "    BIN_OP >",
+            "     IDENTIFIER a",
+            "     null",
+            "  IF IF",
+            "   COND COND",
+            "    IDENTIFIER a",
+            " FUNC FUNCTION",
+            "  IDENTIFIER g",
+            "  PARAM PARAM_LIST",
+            " FUNC FUNCTION",
+            "  IDENTIFIER h",
+            "  PARAM PARAM_LIST",
+            "  RETURN_TYPE int", "")), tree(text));
+        // One error per malformed construct, none for what follows from it.
+        String errors = diagnostics(text);
+        assertTrue(errors.startsWith("ERROR: t.rook:2:11: Parse error. Unexpected token.\n  if (a > ) {\n          ^\n"
+            + "ERROR: t.rook:8:8: Parse error. Expected ')'.\nfunc g(: int {\n       ^\n"), errors);
+        assertEquals(2, errors.split("Parse error", -1).length - 1, errors);
+    }
+
+    @Test
+    void parsingStopsAtTheErrorLimit() throws IOException {
+        String text = "func g(: int {\n}\n".repeat(Parser.MAX_ERRORS * 3);
+        String errors = diagnostics(text);
+        assertEquals(Parser.MAX_ERRORS, errors.split("Expected '\\)'", -1).length - 1);
+        assertTrue(errors.contains(Parser.TOO_MANY_ERRORS), errors);
+
+        Source source = Source.of("t.rook", text);
+        Parser parser = new Parser(source, new Report(source));
+        parser.setErrorLimit(3);
+        parser.parse();
+        assertEquals(3, parser.getErrorCount());
+        assertEquals(3, parser.getRootNode().getChildren().size());
+    }
+
+    @Test
+    void truncatedAndGarbageSourcesParseInLinearTime() {
+        String[] pieces = { "func", "if", "elif", "else", "(", ")", "{", "}", ";", ",", ":", "a", "1", "+", "!",
+            "import", ".", "int", "\n" };
+        Random random = new Random(21);
+        StringBuilder garbage = new StringBuilder();
+        while (garbage.length() < 4_000_000) garbage.append(pieces[random.nextInt(pieces.length)]).append(' ');
+        String truncated = "func f(a): int {\n  if (a) {\n    elif (a + (".repeat(50_000);
+
+        for (String text : new String[] { garbage.toString(), truncated }) {
+            Source source = Source.of("t.rook", text);
+            Parser parser = new Parser(source, new Report(source));
+            parser.setErrorLimit(Integer.MAX_VALUE);
+            assertTimeoutPreemptively(Duration.ofSeconds(20), () -> {
+                parser.parse((node, token) -> { });
+                return null;
+            });
+            assertTrue(parser.getErrorCount() > 0);
+        }
+    }
+
+    @Test
+    void deeplyNestedBlocksKeepTheirShape() throws IOException {
+        int depth = 100_000;
+        String ifs = "func f(a): int {\n" + "if (a) {\n".repeat(depth) + "elif (b) { } else { } }\n".repeat(depth) + "}\n";
+        String elses = "func f(a): int {\n" + "if (a) { else {\n".repeat(depth) + "} }\n".repeat(depth) + "}\n";
+        assertTrue(tree("func f(a): int {\n" + "if (a) {\n".repeat(2) + "elif (b) { } else { } }\n".repeat(2) + "}\n")
+            .endsWith("  IF IF\n   COND COND\n    IDENTIFIER a\n   IF IF\n    COND COND\n     IDENTIFIER a\n"
+                + "    ELIF ELIF\n     COND COND\n      IDENTIFIER b\n    ELSE ELSE\n"
+                + "   ELIF ELIF\n    COND COND\n     IDENTIFIER b\n   ELSE ELSE\n"));
+
+        for (String text : new String[] { ifs, elses }) {
+            assertEquals("", diagnostics(text));
+            Source source = Source.of("t.rook", text);
+            AstArena arena = new AstArena();
+            new Parser(source, new Report(source)).parseInto(arena);
+
+            // Walk down the IF chain: each IF holds its COND, then the IF nested in it or in its ELSE.
+            int node = arena.getFirstChild(arena.getFirstChild(arena.getRoot()));
+            while (arena.getType(node) != NodeType.IF) node = arena.getNextSibling(node);
+            int levels = 0;
+            while (node != AstArena.NONE) {
+                assertEquals(NodeType.IF, arena.getType(node));
+                int cond = arena.getFirstChild(node);
+                assertEquals(NodeType.COND, arena.getType(cond));
+                int next = arena.getNextSibling(cond);
+                if (next != AstArena.NONE && arena.getType(next) == NodeType.ELSE) next = arena.getFirstChild(next);
+                node = (next != AstArena.NONE && arena.getType(next) == NodeType.IF) ? next : AstArena.NONE;
+                levels++;
+            }
+            assertEquals(depth, levels);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class ReportTest.
+ * Diagnostics are written once each, and counted as written.
+ */
+class ReportTest {
+    @Test
+    void duplicatesAreWrittenAndCountedOnce() throws IOException {
+        Source source = Source.of("t.rook", "func f(): int {\n}\n");
+        Report report = new Report(source);
+        report.error("a", 5);
+        report.warning("b", 5);
+        report.error("a", 5);
+        report.warning("b", 5);
+        report.error("a", 6);
+        report.error("c");
+        report.error("c");
+        StringWriter out = new StringWriter();
+        report.write(out);
+
+        String written = out.toString();
+        assertEquals(3, written.split("ERROR: ", -1).length - 1, written);
+        assertEquals(1, written.split("WARNING: ", -1).length - 1, written);
+        assertEquals(3, report.getErrorCount());
+        assertEquals(1, report.getWarningCount());
+
+        StringWriter again = new StringWriter();
+        report.flush(again);
+        assertEquals(written, again.toString());
+        assertEquals(3, report.getErrorCount());
+    }
+
+    @Test
+    void duplicatesBetweenOtherDiagnosticsAreDropped() throws IOException {
+        Source source = Source.of("t.rook", "func f(): int {\n}\n");
+        Report report = new Report(source);
+        report.error("a", 5);
+        report.error("x", 6);
+        report.error("b", 5);
+        report.warning("a", 5);
+        report.error("c", 5);
+        report.error("a", 5);
+        StringWriter out = new StringWriter();
+        report.write(out);
+
+        String written = out.toString();
+        assertEquals(1, written.split("ERROR: t.rook:1:6: a", -1).length - 1, written);
+        assertTrue(written.indexOf(": a\n") < written.indexOf(": b\n"), written);
+        assertTrue(written.indexOf(": b\n") < written.indexOf(": c\n"), written);
+        assertEquals(4, report.getErrorCount());
+        assertEquals(1, report.getWarningCount());
+    }
+
+    @Test
+    void countsKeepWhatWasFlushed() throws IOException {
+        Source source = Source.of("t.rook", "func f(): int {\n}\n");
+        Report report = new Report(source);
+        report.error("a", 1);
+        report.error("a", 1);
+        report.flush(new StringWriter());
+        assertTrue(report.isEmpty());
+        assertEquals(1, report.getErrorCount());
+
+        report.error("b", 2);
+        report.error("b", 2);
+        report.warning("c", 3);
+        StringWriter out = new StringWriter();
+        report.flush(out);
+        assertTrue(out.toString().startsWith("ERROR: t.rook:1:3: b\n"), out.toString());
+        assertEquals(1, out.toString().split("ERROR: ", -1).length - 1, out.toString());
+        assertEquals(2, report.getErrorCount());
+        assertEquals(1, report.getWarningCount());
+
+        report.clear();
+        assertEquals(0, report.getErrorCount());
+    }
+}
\ No newline at end of file
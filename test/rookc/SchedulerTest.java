@@ -0,0 +1,102 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class SchedulerTest.
+ * Builds small projects whose import graph has a cycle or whose
+ * parse fails, every build has to finish and report it.
+ */
+class SchedulerTest {
+    private final List<String> files = new ArrayList<>();
+    private final Map<String, String> packages = new HashMap<>();
+
+    private Path dir() throws IOException {
+        return Files.createTempDirectory("rookc");
+    }
+
+    private void file(Path dir, String name, String text) throws IOException {
+        Path file = Files.writeString(dir.resolve(name + ".rook"), text);
+        files.add(file.toString());
+        packages.put(file.toString(), name);
+    }
+
+    private String name(String pkg) {
+        for (String file : files) {
+            if (packages.get(file).equals(pkg)) return file;
+        }
+        return null;
+    }
+
+    @Test
+    void everyImportCycleIsReported() throws IOException {
+        Path dir = dir();
+        file(dir, "a", "import b;\nfunc f(): int {\n}\n");
+        file(dir, "b", "import c;\nfunc g(): int {\n}\n");
+        file(dir, "c", "import a;\nimport b;\nfunc h(): int {\n}\n");
+        file(dir, "d", "import a;\nfunc k(): int {\n}\n");
+
+        StringWriter out = new StringWriter();
+        int errors = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> Scheduler.build(files, packages, 2, null, out, null));
+        String text = out.toString();
+        assertEquals(2, errors, text);
+        assertTrue(text.contains("Import cycle: " + name("a") + " -> " + name("b") + " -> " + name("c") + " -> " + name("a") + "."), text);
+        assertTrue(text.contains("Import cycle: " + name("b") + " -> " + name("c") + " -> " + name("b") + "."), text);
+    }
+
+    @Test
+    void throwingParseStillFinishesTheBuild() throws IOException {
+        Path dir = dir();
+        file(dir, "a", "import b;\nfunc f(): int {\n}\n");
+        file(dir, "b", "func g(): int {\n}\n");
+        file(dir, "c", "import a;\nfunc f(): int {\n}\n");
+
+        StringWriter out = new StringWriter();
+        int errors = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                Scheduler.build(files, packages, 2, out, null, (path, source) -> {
+                    if (path.equals(name("b"))) throw new IllegalStateException("broken");
+                    assertNotNull(source, path);
+                    return CompilationUnit.compile(source, null);
+                }));
+        String text = out.toString();
+        assertEquals(1, errors, text);
+        assertTrue(text.contains("Internal compiler error: java.lang.IllegalStateException: broken"), text);
+        assertTrue(text.contains("f hides a declaration of " + name("a") + "."), text);
+    }
+}
\ No newline at end of file
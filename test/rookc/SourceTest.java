@@ -0,0 +1,90 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class SourceTest.
+ * Small files are read into an array and large ones are mapped,
+ * either way a Source holds the bytes of the file.
+ */
+class SourceTest {
+    private static Source read(String text) throws IOException {
+        Path file = Files.createTempFile("rookc", ".rook");
+        Files.writeString(file, text);
+        return Source.read(file.toString());
+    }
+
+    @Test
+    void smallFilesAreRead() throws IOException {
+        Source source = read("func f(): int {\n}\n");
+        assertTrue(source.bytes().hasArray());
+        assertEquals(18, source.length());
+        assertEquals("f()", source.text(5, 3));
+
+        Source empty = read("");
+        assertEquals(0, empty.length());
+        assertEquals(TokenType.EOF, new Lexer(empty, new Report(empty)).getNextTokenType());
+    }
+
+    @Test
+    void largeFilesAreMapped() throws IOException {
+        String text = "func f(): int {\n  // \u00e9t\u00e9\n}\n".repeat(4000);
+        Source source = read(text);
+        assertTrue(source.bytes() instanceof MappedByteBuffer);
+        assertFalse(source.bytes().hasArray());
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        assertEquals(bytes.length, source.length());
+        assertTrue(source.length() >= 1 << 16);
+        // Text is decoded from the mapped bytes, across a multi-byte character.
+        int at = text.length() * 3 / 4;
+        at = text.indexOf("// ", at);
+        int offset = text.substring(0, at).getBytes(StandardCharsets.UTF_8).length;
+        assertEquals("// \u00e9t\u00e9", source.text(offset, 8));
+
+        // Both are lexed the same way.
+        Source copy = Source.of("t.rook", text);
+        assertEquals(TokenBufferTest.dump(TokenBuffer.of(new Lexer(copy, new Report(copy)))),
+            TokenBufferTest.dump(TokenBuffer.of(new Lexer(source, new Report(source)))));
+    }
+
+    @Test
+    void editCopiesTheBytesAroundTheEdit() throws IOException {
+        Source source = read("a + b;\n".repeat(10000));
+        Source edited = source.edit(4, 1, "c * d".getBytes(StandardCharsets.UTF_8));
+        assertEquals(source.length() + 4, edited.length());
+        assertEquals("a + c * d;\na + b;", edited.text(0, 17));
+        assertEquals(source.path(), edited.path());
+        assertEquals("a + b;", source.text(0, 6));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class SwarTest.
+ * Word masks and skips against the same tests made one byte
+ * at a time.
+ */
+class SwarTest {
+    private static boolean isIdentifier(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private static boolean bit(long mask, int i) {
+        return (mask & (0x80L << (i << 3))) != 0;
+    }
+
+    @Test
+    void everyByteIsClassifiedAtEveryPosition() {
+        for (long background : new long[] { 0L, -1L, 0x4141414141414141L, 0x8080808080808080L }) {
+            for (int i = 0; i < Long.BYTES; i++) {
+                for (int b = 0; b < 256; b++) {
+                    long word = (background & ~(0xFFL << (i << 3))) | ((long) b << (i << 3));
+                    String at = Integer.toHexString(b) + " at " + i;
+                    assertEquals(b == 'x', bit(Swar.equal(word, 'x'), i), at);
+                    assertEquals(b >= '0' && b <= '9', bit(Swar.between(word, '0', '9'), i), at);
+                    assertEquals(b >= 1 && b <= 0x7F, bit(Swar.between(word, 1, 0x7F), i), at);
+                    assertEquals(isWhitespace(b), bit(Swar.whitespace(word), i), at);
+                    assertEquals(isIdentifier(b), bit(Swar.identifier(word), i), at);
+                }
+            }
+        }
+        assertEquals(8, Swar.run(0x8080808080808080L));
+        assertEquals(3, Swar.run(0x0000000000808080L));
+        assertEquals(0, Swar.run(0L));
+    }
+
+    @Test
+    void skipsStopWhereTheByteLoopStops() {
+        Random random = new Random(24);
+        byte[] alphabet = "aZ_09 \t\r\n\"\\x.\u00c3".getBytes(StandardCharsets.ISO_8859_1);
+        for (int round = 0; round < 200; round++) {
+            byte[] bytes = new byte[random.nextInt(64)];
+            // Long runs of one byte with a few others in between.
+            byte fill = alphabet[random.nextInt(alphabet.length)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (random.nextInt(6) == 0) ? alphabet[random.nextInt(alphabet.length)] : fill;
+            }
+            ByteBuffer src = ByteBuffer.wrap(bytes);
+            int end = bytes.length;
+            for (int pos = 0; pos <= end; pos++) {
+                assertSkip(bytes, pos, Swar.skipIdentifier(src, pos, end), SwarTest::isIdentifier);
+                assertSkip(bytes, pos, Swar.skipDigits(src, pos, end), b -> b >= '0' && b <= '9');
+                assertSkip(bytes, pos, Swar.skipString(src, pos, end), b -> b != '"' && b != '\\' && b != '\n');
+                assertSkip(bytes, pos, Swar.skipLine(src, pos, end), b -> b != '\n');
+            }
+        }
+    }
+
+    /**
+     * Checks that a skip from pos stopped at the first byte that
+     * ends the run, or within the last seven bytes before it.
+     */
+    private static void assertSkip(byte[] bytes, int pos, int skipped, IntPredicate inRun) {
+        int stop = pos;
+        while (stop < bytes.length && inRun.test(bytes[stop] & 0xFF)) stop++;
+        assertTrue(skipped >= pos && skipped <= stop, pos + " -> " + skipped + ", run ends at " + stop);
+        assertTrue(skipped == stop || bytes.length - skipped < Long.BYTES, pos + " -> " + skipped + ", run ends at " + stop);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import rookc.parser.Interner;
+
+/**
+ * Class TokenBufferTest.
+ * Tokens of a buffer, however it was built, and the values of
+ * its literals.
+ */
+class TokenBufferTest {
+    static TokenBuffer tokens(String text) {
+        Source source = Source.of("t.rook", text);
+        return TokenBuffer.of(new Lexer(source, new Report(source)));
+    }
+
+    /**
+     * Returns every token of a buffer as "TYPE start length line id".
+     */
+    static String dump(TokenBuffer tokens) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            sb.append(tokens.type(i)).append(' ').append(tokens.start(i)).append(' ').append(tokens.length(i))
+                .append(' ').append(tokens.line(i)).append(' ').append(tokens.id(i)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void bufferEndsWithEofAndReadsPastItAsEof() {
+        TokenBuffer tokens = tokens("func f(a): int {\n  if (a > -1) {\n  }\n}\n");
+        assertEquals(18, tokens.size());
+        assertEquals(TokenType.FUNC, tokens.type(0));
+        assertEquals("f", tokens.text(1));
+        assertEquals(TokenType.INTEGER_LITERAL, tokens.type(12));
+        assertEquals("-1", tokens.text(12));
+        assertEquals(2, tokens.line(12));
+        assertEquals(TokenType.EOF, tokens.type(17));
+        assertEquals(TokenType.EOF, tokens.type(1000));
+        assertEquals(tokens.start(17), tokens.start(1000));
+        // Identifiers and literals other than strings carry their Interner id.
+        assertEquals("f", Interner.get(tokens.id(1)));
+        assertEquals(-1, tokens.id(0));
+    }
+
+    @Test
+    void rangesJoinToTheBufferOfTheWholeSource() {
+        String text = "func f(a): int {\n  g(a;\n}\nfunc g(b): int {\n  b);\n}\nfunc h(): int {\n}\n";
+        Source source = Source.of("t.rook", text);
+        int[] cuts = { 0, text.indexOf("func g"), text.indexOf("func h"), text.length() + 1 };
+        LineMap lines = LineMap.of(source);
+        TokenBuffer[] parts = new TokenBuffer[cuts.length - 1];
+        for (int k = 0; k < parts.length; k++) {
+            Lexer lex = new Lexer(source, new Report(source));
+            lex.reset(cuts[k], lines.line(cuts[k]), TokenType.NONE);
+            parts[k] = TokenBuffer.range(lex, (k + 2 < cuts.length) ? cuts[k + 1] : Integer.MAX_VALUE);
+        }
+        assertEquals(TokenType.FUNC, parts[1].type(0));
+        assertEquals(TokenType.RIGHT_BRACE, parts[1].type(parts[1].size() - 1));
+        TokenBuffer joined = TokenBuffer.concat(lines, parts);
+        assertEquals(dump(tokens(text)), dump(joined));
+
+        // The '(' of the first range is closed in the second.
+        Report report = new Report(source);
+        joined.checkBalance(report);
+        assertEquals(0, report.getErrorCount());
+        parts[2].checkBalance(report);
+        assertEquals(0, report.getErrorCount());
+    }
+
+    @Test
+    void spliceMatchesALexOfTheEditedSource() {
+        String text = "func f(a): int {\n  if (a > b) {\n  }\n}\nfunc g(): int {\n}\n";
+        Source source = Source.of("t.rook", text);
+        TokenBuffer tokens = TokenBuffer.of(new Lexer(source, new Report(source)));
+        int offset = text.indexOf("b)");
+        byte[] inserted = "(c +\n d".getBytes(StandardCharsets.UTF_8);
+        Source edited = source.edit(offset, 1, inserted);
+        LineMap lines = tokens.lineMap().edit(offset, 1, edited, inserted.length);
+
+        int from = tokens.find(offset);
+        Lexer lex = new Lexer(edited, new Report(edited));
+        lex.reset(offset, lines.line(offset), tokens.type(from - 1));
+        TokenBuffer relexed = new TokenBuffer(edited, lines, 4);
+        for (int i = 0; i < 4; i++) relexed.add(lex, lex.getNextTokenType());
+        tokens.splice(edited, lines, from, relexed, from + 1, inserted.length - 1, 1);
+
+        String after = text.substring(0, offset) + "(c +\n d" + text.substring(offset + 1);
+        assertEquals(dump(tokens(after)), dump(tokens));
+        assertSame(edited, tokens.source());
+        // One more '(' than before.
+        Report report = new Report(edited);
+        tokens.checkBalance(report);
+        assertEquals(1, report.getErrorCount());
+    }
+
+    @Test
+    void literalsAreDecodedOneAtATime() {
+        String longer = "x\\ty".repeat(100);
+        TokenBuffer tokens = tokens("\"" + longer + "\" \"a\\nb\" 'c' '\\'' \"plain\" \"open\\");
+        assertEquals("x\ty".repeat(100), tokens.literal(0));
+        assertEquals("a\nb", tokens.literal(1));
+        assertEquals("c", tokens.literal(2));
+        assertEquals("'", tokens.literal(3));
+        assertEquals("plain", tokens.literal(4));
+        assertEquals("open\\", tokens.literal(5));
+        // The scratch array of the first literal is reused, not read past the value.
+        assertEquals("a\nb", tokens.literal(1));
+        assertEquals("x\ty".repeat(100), tokens.literal(0));
+    }
+
+    @Test
+    void lazyBufferLexesOnlyWhatIsReadAndMatchesTheEagerOne() {
+        String text = "func f(a): int {\n  if (a > -1) {\n  }\n}\n".repeat(50);
+        Source source = Source.of("t.rook", text);
+        Lexer lex = new Lexer(source, new Report(source));
+        TokenBuffer lazy = TokenBuffer.lazy(lex);
+        assertEquals(0, lazy.size());
+        assertEquals("f", lazy.text(1));
+        assertEquals(2, lazy.size());
+        assertEquals(TokenType.INTEGER_LITERAL, lazy.type(12));
+        assertEquals(13, lazy.size());
+        assertEquals(2, lex.getLineMap().getLineCount());
+
+        // Reading past the end lexes the rest, every token once.
+        assertEquals(TokenType.EOF, lazy.type(100_000));
+        assertEquals(dump(tokens(text)), dump(lazy));
+        assertEquals(201, lex.getLineMap().getLineCount());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class TokenStreamTest.
+ * A stream reads the same tokens as a buffer, through a ring
+ * that only lexes as far as it looks ahead.
+ */
+class TokenStreamTest {
+    private static final String TEXT = "func f(a, b): int {\n  if (a >= -1 && b != \"x\\\"y\") {\n  }\n"
+        + "  // done\n}\nimport p.q;\n";
+
+    private static TokenStream stream(String text, int lookahead) {
+        Source source = Source.of("t.rook", text);
+        return new TokenStream(new Lexer(source, new Report(source)), lookahead);
+    }
+
+    @Test
+    void everyLookaheadSeesTheTokensOfTheBuffer() {
+        TokenBuffer tokens = TokenBufferTest.tokens(TEXT);
+        for (int lookahead : new int[] { 0, 1, 3, 4, 8 }) {
+            TokenStream stream = stream(TEXT, lookahead);
+            for (int i = 0; i < tokens.size() + 3; i++) {
+                assertEquals(i, stream.index());
+                for (int k = lookahead; k >= 0; k--) {
+                    assertEquals(tokens.type(i + k), stream.type(k), i + "+" + k);
+                    assertEquals(tokens.start(i + k), stream.start(k), i + "+" + k);
+                    assertEquals(tokens.length(i + k), stream.length(k), i + "+" + k);
+                    assertEquals(tokens.line(i + k), stream.line(k), i + "+" + k);
+                    assertEquals(tokens.id(i + k), stream.id(k), i + "+" + k);
+                }
+                assertEquals(tokens.text(i), stream.text(0));
+                stream.advance();
+            }
+            assertEquals(TokenType.EOF, stream.type(0));
+        }
+    }
+
+    @Test
+    void lookaheadIsBoundedByTheRing() {
+        // The ring rounds 5 up to 8 slots, 3 fits in 4.
+        TokenStream stream = stream(TEXT, 5);
+        assertEquals(TokenType.FUNC, stream.type(0));
+        assertEquals(TokenType.RIGHT_PAREN, stream.type(6));
+        assertEquals(TokenType.COLON, stream.type(7));
+        assertThrows(IllegalArgumentException.class, () -> stream.type(8));
+        assertEquals(TokenType.IDENTIFIER, stream(TEXT, 3).type(3));
+        assertThrows(IllegalArgumentException.class, () -> stream(TEXT, 3).type(4));
+        assertThrows(IllegalArgumentException.class, () -> stream.type(-1));
+    }
+
+    @Test
+    void onlyTheTokensLookedAtAreLexed() {
+        Source source = Source.of("t.rook", "a b c d e f g h\n");
+        Lexer lex = new Lexer(source, new Report(source));
+        TokenStream stream = new TokenStream(lex, 2);
+        stream.advance();
+        assertEquals("c", stream.text(1));
+        assertEquals(5, lex.getCurrentCpos());
+        stream.advance();
+        assertEquals("c", stream.text(0));
+        assertEquals(5, lex.getCurrentCpos());
+    }
+}
\ No newline at end of file
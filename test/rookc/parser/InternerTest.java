@@ -0,0 +1,51 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class InternerTest.
+ * Ids of the global interner across a release.
+ */
+class InternerTest {
+    @Test
+    void releaseDropsOnlyTheIdsAfterTheMark() {
+        int kept = Interner.intern("InternerTest.kept");
+        int mark = Interner.mark();
+        int dropped = Interner.intern("InternerTest.dropped");
+        for (int i = 0; i < 5000; i++) Interner.intern("InternerTest." + i);
+        assertTrue(dropped >= mark);
+
+        Interner.release(mark);
+        assertEquals(mark, Interner.size());
+        assertEquals("InternerTest.kept", Interner.get(kept));
+        assertEquals(kept, Interner.intern("InternerTest.kept"));
+        assertEquals(mark, Interner.intern("InternerTest.again"));
+        assertEquals(mark + 1, Interner.intern("InternerTest.dropped"));
+        assertEquals("InternerTest.again", Interner.get(mark));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+/*
+MIT License
+
+Copyright (c) 2023 rooklang-dev
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+package rookc.parser;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class SymbolTableTest.
+ * Scope marks, shadowing and growth of the symbol table.
+ */
+class SymbolTableTest {
+    @Test
+    void innerBindingsShadowAndExitRestoresTheOuterOne() {
+        SymbolTable table = new SymbolTable();
+        table.addIdentifier("x", DataType.INT);
+        table.enterScope();
+        assertFalse(table.isDeclaredInScope("x"));
+        table.addIdentifier("x", DataType.STRING);
+        table.addIdentifier("y", DataType.BOOL);
+        assertEquals(DataType.STRING, table.getDataType("x"));
+        assertTrue(table.isDeclaredInScope("x"));
+        assertEquals(1, table.getDepth());
+
+        table.exitScope();
+        assertEquals(0, table.getDepth());
+        assertEquals(DataType.INT, table.getDataType("x"));
+        assertTrue(table.isDeclaredInScope("x"));
+        assertFalse(table.doesExist("y"));
+        assertNull(table.getDataType("y"));
+    }
+
+    @Test
+    void redeclaringInTheSameScopeReplacesTheType() {
+        SymbolTable table = new SymbolTable();
+        table.addIdentifier("x", DataType.INT);
+        table.enterScope();
+        table.addIdentifier("x", DataType.CHAR);
+        table.addIdentifier("x", DataType.FLOAT);
+        assertTrue(table.isValid("x", DataType.FLOAT));
+        table.exitScope();
+        assertTrue(table.isValid("x", DataType.INT));
+    }
+
+    @Test
+    void nestedScopesUnwindOneMarkAtATime() {
+        SymbolTable table = new SymbolTable();
+        for (int depth = 0; depth < 20; depth++) {
+            table.enterScope();
+            table.addIdentifier("v", DataType.values()[depth % 5]);
+            table.addIdentifier("only" + depth, DataType.BOOL);
+        }
+        for (int depth = 19; depth >= 0; depth--) {
+            assertEquals(DataType.values()[depth % 5], table.getDataType("v"));
+            assertTrue(table.doesExist("only" + depth));
+            table.exitScope();
+            assertFalse(table.doesExist("only" + depth));
+        }
+        assertFalse(table.doesExist("v"));
+        assertThrows(IllegalStateException.class, table::exitScope);
+    }
+
+    @Test
+    void bindingsSurviveGrowthAndScopeExit() {
+        SymbolTable table = new SymbolTable();
+        for (int i = 0; i < 100; i++) table.addIdentifier("outer" + i, DataType.INT);
+        table.enterScope();
+        for (int i = 0; i < 1000; i++) table.addIdentifier("inner" + i, DataType.CHAR);
+        for (int i = 0; i < 100; i += 7) table.addIdentifier("outer" + i, DataType.STRING);
+        assertEquals(DataType.STRING, table.getDataType("outer7"));
+        assertEquals(DataType.CHAR, table.getDataType("inner999"));
+
+        table.exitScope();
+        for (int i = 0; i < 100; i++) assertEquals(DataType.INT, table.getDataType("outer" + i));
+        for (int i = 0; i < 1000; i += 37) assertFalse(table.doesExist("inner" + i));
+    }
+}
\ No newline at end of file